@@ -0,0 +1,175 @@
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+/**
+ * Regression guard for heap allocation on the per-tick and per-frame paths. Plays bot
+ * games headless, measures the bytes each GameEngine.update() and GamePanel paint
+ * allocates on this thread, and exits with status 1 if a path's average is over its
+ * budget, so a build script can fail on it.
+ *
+ * Only steady-state iterations count: ticks that start a new level or game (which
+ * recreate the ghosts) are skipped. Budgets are exact, with no allowance. A path over
+ * budget in the first measured window is measured over a second one, and fails only
+ * if it is over there too; a one-off deoptimization, which runs interpreted code that
+ * allocates until C2 recompiles it, can't repeat, while a real leak does. Paths covered:
+ *   tick       update() with the GamePanel's listeners and rewind recorder attached
+ *   large tick update() on a LARGE_MAP_SIZE map, where ghosts chase with HierarchicalPathfinder
+ *   frame      paintComponent after every tick, the status texts change now and then
+ *   idle frame paintComponent of an unchanged state, as while the game is paused
+ *
+ * Usage: java AllocationBudgetCheck [iterations]
+ */
+public class AllocationBudgetCheck {
+    // --- Budgets (average bytes per iteration) ---
+    private static final double TICK_BUDGET = 0;
+    private static final double LARGE_TICK_BUDGET = 0;
+    private static final double FRAME_BUDGET = 64; // Status texts are rebuilt when their value changes
+    private static final double IDLE_FRAME_BUDGET = 0;
+
+    private static final int WARMUP_ITERATIONS = 20_000; // Long enough for the JIT to compile the paths
+    private static final char[] BOT_MOVES = {'W', 'A', 'S', 'D'};
+    private static final int LARGE_MAP_SIZE = 256;
+    private static final int LARGE_MAP_TURN_ODDS = 16; // The large-map bot keeps its heading to cross clusters
+
+    private final com.sun.management.ThreadMXBean threadBean;
+    private final GameEngine engine = new GameEngine();
+    private final GamePanel panel;
+    private final Graphics2D graphics;
+    private final Random bot = new Random(1);
+    private final GameEngine largeEngine = new GameEngine(LARGE_MAP_SIZE, LARGE_MAP_SIZE, 2);
+
+    public AllocationBudgetCheck(com.sun.management.ThreadMXBean threadBean) {
+        this.threadBean = threadBean;
+        engine.setSeed(1);
+        panel = new GamePanel(engine);
+        panel.enableRewind();
+        panel.setSize(panel.getPreferredSize());
+        BufferedImage image = new BufferedImage(panel.getWidth(), panel.getHeight(), BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+        engine.startNewGame();
+        largeEngine.setSeed(1);
+        largeEngine.startNewGame();
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)
+                || !((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            System.err.println("This JVM can't measure per-thread allocation");
+            System.exit(2);
+        }
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        AllocationBudgetCheck check = new AllocationBudgetCheck(threadBean);
+        check.run(WARMUP_ITERATIONS); // Results discarded
+        boolean[] passed = report(check.run(iterations), iterations, null);
+        if (!allPassed(passed)) {
+            System.out.println("Measuring the paths over budget again:");
+            passed = report(check.run(iterations), iterations, passed);
+        }
+        if (!allPassed(passed)) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Reports the paths of one measured window.
+     * @param earlier Results of the first window, whose passing paths aren't reported
+     *                again; null for the first window.
+     * @return Per path (tick, large tick, frame, idle frame), whether it is within budget.
+     */
+    private static boolean[] report(long[] result, int iterations, boolean[] earlier) {
+        String over = earlier == null ? "over budget" : "OVER BUDGET";
+        boolean[] passed = earlier == null ? new boolean[4] : earlier.clone();
+        if (!passed[0]) passed[0] = report("tick", result[0], result[1], TICK_BUDGET, over);
+        if (!passed[1]) passed[1] = report("large tick", result[4], result[5], LARGE_TICK_BUDGET, over);
+        if (!passed[2]) passed[2] = report("frame", result[2], result[1], FRAME_BUDGET, over);
+        if (!passed[3]) passed[3] = report("idle frame", result[3], iterations, IDLE_FRAME_BUDGET, over);
+        return passed;
+    }
+
+    private static boolean allPassed(boolean[] passed) {
+        for (boolean path : passed) {
+            if (!path) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Plays the given number of ticks, painting after each one and then repainting the
+     * same state once more, and as many ticks on the large map.
+     * @return Tick bytes, steady-state tick count, frame bytes, idle frame bytes,
+     *         large tick bytes, steady-state large tick count.
+     */
+    private long[] run(int iterations) {
+        long tickBytes = 0;
+        long frameBytes = 0;
+        long idleFrameBytes = 0;
+        long largeTickBytes = 0;
+        int steadyTicks = 0;
+        int steadyLargeTicks = 0;
+
+        for (int i = 0; i < iterations; i++) {
+            if (engine.isGameOver() || engine.isVictory()) {
+                engine.startNewGame();
+            }
+            engine.getPacMan().setDirection(BOT_MOVES[bot.nextInt(BOT_MOVES.length)]);
+            int level = engine.getLevel();
+
+            long start = allocatedBytes();
+            engine.update();
+            long tick = allocatedBytes() - start;
+
+            start = allocatedBytes();
+            panel.paintComponent(graphics);
+            long frame = allocatedBytes() - start;
+
+            start = allocatedBytes();
+            panel.paintComponent(graphics);
+            idleFrameBytes += allocatedBytes() - start;
+
+            if (engine.getLevel() == level && !engine.isGameOver() && !engine.isVictory()) {
+                tickBytes += tick;
+                frameBytes += frame;
+                steadyTicks++;
+            }
+
+            if (largeEngine.isGameOver() || largeEngine.isVictory()) {
+                largeEngine.startNewGame();
+            }
+            if (bot.nextInt(LARGE_MAP_TURN_ODDS) == 0) {
+                largeEngine.getPacMan().setDirection(BOT_MOVES[bot.nextInt(BOT_MOVES.length)]);
+            }
+            level = largeEngine.getLevel();
+
+            start = allocatedBytes();
+            largeEngine.update();
+            tick = allocatedBytes() - start;
+
+            if (largeEngine.getLevel() == level && !largeEngine.isGameOver() && !largeEngine.isVictory()) {
+                largeTickBytes += tick;
+                steadyLargeTicks++;
+            }
+        }
+        return new long[] {tickBytes, steadyTicks, frameBytes, idleFrameBytes, largeTickBytes, steadyLargeTicks};
+    }
+
+    private long allocatedBytes() {
+        return threadBean.getCurrentThreadAllocatedBytes();
+    }
+
+    private static boolean report(String path, long bytes, long iterations, double budget, String over) {
+        double perIteration = (double) bytes / Math.max(1, iterations);
+        boolean passed = perIteration <= budget;
+        System.out.printf("%-10s %10.2f bytes/iteration (budget %.0f, %d iterations) %s%n",
+                          path, perIteration, budget, iterations, passed ? "OK" : over);
+        return passed;
+    }
+}
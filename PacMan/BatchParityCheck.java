@@ -0,0 +1,128 @@
+import java.util.Random;
+
+/**
+ * Parity check for BatchGameEngine. On several map sizes and ghost counts it steps a
+ * batch next to one GameEngine per lane, with the same seeds, random bot moves and
+ * random restarts, and after every tick compares each lane with its engine: Pac-Man,
+ * score, power-up, level, game state, pellets left and every ghost. The whole grid is
+ * compared every few ticks. Exits with status 1 on the first mismatch, so a build script
+ * can fail on it.
+ *
+ * Usage: java --add-modules jdk.incubator.vector BatchParityCheck [seed]
+ */
+public class BatchParityCheck {
+    private static final int[][] MAP_SIZES = {{19, 19}, {37, 37}, {21, 41}, {9, 9}, {5, 7}};
+    private static final int[] BASE_GHOSTS = {0, 2, 6};
+    private static final int LANES = 64;
+    private static final int TICKS = 4000;
+    private static final int GRID_CHECK_EVERY = 97;  // Ticks between full grid comparisons
+    private static final int RESTART_ODDS = 50;      // A running lane restarts with chance 1 in this
+    private static final int RESTART_ENDED_ODDS = 20; // A finished lane restarts with chance 1 in this
+    private static final char[] BOT_MOVES = {'W', 'A', 'S', 'D', ' '}; // The last one stands still
+
+    private final Random random;
+    private long laneTicks = 0;
+
+    public BatchParityCheck(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 1;
+        BatchParityCheck check = new BatchParityCheck(seed);
+        try {
+            for (int[] size : MAP_SIZES) {
+                for (int baseGhosts : BASE_GHOSTS) {
+                    check.run(size[0], size[1], baseGhosts);
+                }
+            }
+        } catch (IllegalStateException e) {
+            System.out.println("FAILED: " + e.getMessage());
+            System.exit(1);
+        }
+        System.out.println("Batch parity OK (" + check.laneTicks + " lane-ticks)");
+    }
+
+    private void run(int rows, int cols, int baseGhosts) {
+        BatchGameEngine batch = new BatchGameEngine(LANES, rows, cols, baseGhosts);
+        GameEngine[] engines = new GameEngine[LANES];
+        for (int lane = 0; lane < LANES; lane++) {
+            engines[lane] = new GameEngine(rows, cols, baseGhosts);
+            long seed = random.nextLong();
+            engines[lane].setSeed(seed);
+            batch.setSeed(lane, seed);
+            // Leave some lanes unstarted: update() must skip them in both
+            if (lane % 5 != 0) {
+                engines[lane].startNewGame();
+                batch.startNewGame(lane);
+            }
+        }
+
+        for (int tick = 0; tick < TICKS; tick++) {
+            for (int lane = 0; lane < LANES; lane++) {
+                GameEngine engine = engines[lane];
+                boolean ended = engine.isGameOver() || engine.isVictory();
+                if (random.nextInt(ended ? RESTART_ENDED_ODDS : RESTART_ODDS) == 0) {
+                    engine.startNewGame();
+                    batch.startNewGame(lane);
+                }
+                char move = BOT_MOVES[random.nextInt(BOT_MOVES.length)];
+                engine.getPacMan().setDirection(move);
+                batch.setDirection(lane, move);
+            }
+            for (GameEngine engine : engines) {
+                engine.update();
+            }
+            batch.update();
+
+            for (int lane = 0; lane < LANES; lane++) {
+                String where = rows + "x" + cols + ", " + baseGhosts + " base ghosts, lane " + lane + ", tick " + tick + ": ";
+                compare(engines[lane], batch, lane, where, tick % GRID_CHECK_EVERY == 0);
+                laneTicks++;
+            }
+        }
+    }
+
+    private static void compare(GameEngine engine, BatchGameEngine batch, int lane, String where, boolean grid) {
+        PacManCharacter pacMan = engine.getPacMan();
+        expect(pacMan.getRow(), batch.getPacManRow(lane), where + "Pac-Man row");
+        expect(pacMan.getCol(), batch.getPacManCol(lane), where + "Pac-Man col");
+        expect(pacMan.getScore(), batch.getScore(lane), where + "score");
+        expect(pacMan.getPowerUpTicksLeft(), batch.getPowerUpTicksLeft(lane), where + "power-up ticks");
+        expect(engine.getLevel(), batch.getLevel(lane), where + "level");
+        expect(engine.getGameTicks(), batch.getGameTicks(lane), where + "game ticks");
+        expect(engine.isRunning(), batch.isRunning(lane), where + "running");
+        expect(engine.isGameOver(), batch.isGameOver(lane), where + "game over");
+        expect(engine.isVictory(), batch.isVictory(lane), where + "victory");
+        expect(engine.getMap().getPelletsRemaining(), batch.getPelletsRemaining(lane), where + "pellets remaining");
+
+        expect(engine.getGhosts().size(), batch.getGhostCount(lane), where + "ghost count");
+        for (int g = 0; g < engine.getGhosts().size(); g++) {
+            Ghost ghost = engine.getGhosts().get(g);
+            expect(ghost.getRow(), batch.getGhostRow(lane, g), where + "ghost " + g + " row");
+            expect(ghost.getCol(), batch.getGhostCol(lane, g), where + "ghost " + g + " col");
+            expect(ghost.getContentUnderGhost(), batch.getGhostContent(lane, g), where + "ghost " + g + " content");
+        }
+
+        if (!grid) return;
+        Map map = engine.getMap();
+        for (int r = 0; r < map.getRows(); r++) {
+            for (int c = 0; c < map.getCols(); c++) {
+                expect(map.getCell(r, c), batch.getCell(lane, r, c), where + "cell (" + r + "," + c + ")");
+                expect(map.hasPellet(r, c), batch.hasPellet(lane, r, c), where + "pellet at (" + r + "," + c + ")");
+            }
+        }
+    }
+
+    private static void expect(int expected, int actual, String what) {
+        if (expected != actual) {
+            throw new IllegalStateException(what + " is " + actual + ", GameEngine has " + expected);
+        }
+    }
+
+    private static void expect(boolean expected, boolean actual, String what) {
+        if (expected != actual) {
+            throw new IllegalStateException(what + " is " + actual + ", GameEngine has " + expected);
+        }
+    }
+}
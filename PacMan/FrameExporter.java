@@ -0,0 +1,141 @@
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.imageio.ImageIO;
+
+/**
+ * Renders a recorded game (see GameRecordingWriter) to images without a display, using
+ * GamePanel's drawing code on offscreen BufferedImages. The frames are split into one
+ * contiguous range per thread; each worker rebuilds the state at the start of its range
+ * from the nearest keyframe and then renders its frames in order.
+ *
+ * Formats:
+ *   png  one frame_NNNNNN.png per frame
+ *   raw  all frames in one frames.rgb file, 3 bytes (R, G, B) per pixel, frame after
+ *        frame, e.g. for: ffmpeg -f rawvideo -pix_fmt rgb24 -s WxH -r 7 -i frames.rgb
+ *
+ * Usage: java FrameExporter recording.pacrec outputDir [png|raw] [threads]
+ */
+public class FrameExporter {
+    private final GameRecording recording;
+    private final Path outputDir;
+    private final boolean raw;
+    private final int threads;
+    private int width;
+    private int height;
+
+    public FrameExporter(GameRecording recording, Path outputDir, boolean raw, int threads) {
+        if (threads <= 0) throw new IllegalArgumentException("Need at least one thread");
+        this.recording = recording;
+        this.outputDir = outputDir;
+        this.raw = raw;
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: java FrameExporter recording.pacrec outputDir [png|raw] [threads]");
+            System.exit(2);
+        }
+        System.setProperty("java.awt.headless", "true");
+        boolean raw = args.length > 2 && args[2].equalsIgnoreCase("raw");
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        long start = System.nanoTime();
+        GameRecording recording = new GameRecording(Paths.get(args[0]));
+        FrameExporter exporter = new FrameExporter(recording, Paths.get(args[1]), raw, threads);
+        exporter.export();
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double realTime = recording.getFrameCount() * GameEngine.TICK_MILLIS / 1000.0;
+        System.out.printf("Exported %d frames (%dx%d) in %.2f s, %.1fx real time%n",
+                          recording.getFrameCount(), exporter.width, exporter.height, seconds, realTime / seconds);
+    }
+
+    /**
+     * Renders every frame of the recording into the output directory.
+     */
+    public void export() throws Exception {
+        Files.createDirectories(outputDir);
+        int frames = recording.getFrameCount();
+        int workers = Math.min(threads, frames);
+
+        // Frame size comes from the recorded map
+        GamePanel probe = new GamePanel(recording.reconstruct(0, new StateReader()));
+        Dimension size = probe.getPreferredSize();
+        width = size.width;
+        height = size.height;
+
+        FileChannel rawFile = raw
+            ? FileChannel.open(outputDir.resolve("frames.rgb"), StandardOpenOption.CREATE,
+                               StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)
+            : null;
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>(workers);
+            for (int w = 0; w < workers; w++) {
+                int first = (int) ((long) frames * w / workers);
+                int end = (int) ((long) frames * (w + 1) / workers);
+                tasks.add(() -> {
+                    renderRange(first, end, rawFile);
+                    return null;
+                });
+            }
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get(); // Rethrows the first worker failure
+            }
+        } finally {
+            pool.shutdownNow();
+            if (rawFile != null) rawFile.close();
+        }
+    }
+
+    // Renders frames first..end-1 with one engine, panel and image reused frame after frame
+    private void renderRange(int first, int end, FileChannel rawFile) throws IOException {
+        StateReader reader = new StateReader();
+        GameEngine engine = recording.reconstruct(first, reader);
+        GamePanel panel = new GamePanel(engine);
+        panel.setSize(width, height);
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        ByteBuffer rgb = raw ? ByteBuffer.allocate(pixels.length * 3) : null;
+        Graphics2D g = image.createGraphics();
+        try {
+            for (int frame = first; frame < end; frame++) {
+                if (frame > first) recording.apply(frame, engine, reader);
+                panel.renderFrame(g);
+
+                if (raw) {
+                    rgb.clear();
+                    for (int pixel : pixels) {
+                        rgb.put((byte) (pixel >> 16)).put((byte) (pixel >> 8)).put((byte) pixel);
+                    }
+                    rgb.flip();
+                    long position = (long) frame * rgb.capacity();
+                    while (rgb.hasRemaining()) {
+                        position += rawFile.write(rgb, position);
+                    }
+                } else {
+                    ImageIO.write(image, "png", outputDir.resolve(String.format("frame_%06d.png", frame)).toFile());
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+}
@@ -8,16 +8,24 @@ import java.util.Random;
  */
 public class GameEngine {
     // --- Game Constants ---
-    private static final int MAX_LEVELS = 5;
+    public static final int TICK_MILLIS = 150; // Real-time length of one update() in the Swing game loop
+    static final int MAX_LEVELS = 5;
     private static final int BASE_PELLETS = 50;
     private static final int BASE_GHOSTS = 2;
-    private static final int GHOST_SPEED_DELAY = 2; // Move ghosts every X ticks
+    static final int GHOST_SPEED_DELAY = 2; // Move ghosts every X ticks
+    static final int HIERARCHICAL_PATHING_MIN_CELLS = 64 * 64; // Smaller maps keep the greedy chase
 
     // --- Core Game Components ---
     private final Map map;
+    private final int baseGhosts; // Ghosts on level 1 is baseGhosts + 1
     private final PacManCharacter pacMan;
     private final List<Ghost> ghosts;
-    private final Random random = new Random();
+    private long seed = System.nanoTime(); // Seeds ghost randomness; see setSeed()
+    private boolean seedUsed = false;      // A game has started from seed, so the next game needs a new one
+    private final Random random = new Random(seed);
+    private final HierarchicalPathfinder pathfinder; // Only created for large maps
+    private final GameEventBus eventBus = new GameEventBus();
+    private StateDeltaRecorder stateRecorder; // Created on demand by startStateRecording()
     
     // --- Helper for Random Fleeing Movement (Directions) ---
     private static final int[][] DIRECTIONS = {
@@ -34,10 +42,26 @@ public class GameEngine {
     private boolean isGameOver = false;
     private boolean isVictory = false;
     private int ticks = 0; // Tracks game steps for delayed ghost movement/respawn
+    private int gameTicks = 0; // Ticks since the current game (not level) started
+    private boolean scoreRecorded = false; // The current game's final score was saved; kept across rewinds
     private final Point initialPacManPos;
 
     public GameEngine() {
-        this.map = new Map();
+        this(new Map(), BASE_GHOSTS);
+    }
+
+    /**
+     * Creates an engine on a custom map size and ghost count (used by tools and stress tests).
+     */
+    public GameEngine(int rows, int cols, int baseGhosts) {
+        this(new Map(rows, cols), baseGhosts);
+    }
+
+    private GameEngine(Map map, int baseGhosts) {
+        this.map = map;
+        this.baseGhosts = baseGhosts;
+        this.pathfinder = map.getRows() * map.getCols() >= HIERARCHICAL_PATHING_MIN_CELLS
+            ? new HierarchicalPathfinder(map.getTopology()) : null;
         
         // Determine initial position for Pac-Man (center of the map)
         int initialRow = map.getRows() / 2;
@@ -50,6 +74,7 @@ public class GameEngine {
 
         // Initialize Pac-Man
         this.pacMan = new PacManCharacter(initialRow, initialCol);
+        this.pacMan.setEventBus(eventBus);
 
         // Initialize Ghosts in a separate, safe area
         this.ghosts = new ArrayList<>();
@@ -67,8 +92,8 @@ public class GameEngine {
         int safeGhostRow = 1;
         int safeGhostCol = map.getCols() - 2; // Top right corner (or near it)
 
-        // Add BASE_GHOSTS ghosts
-        for (int i = 0; i < BASE_GHOSTS + level; i++) {
+        // Add baseGhosts ghosts
+        for (int i = 0; i < baseGhosts + level; i++) {
             // Stagger their initial positions slightly if possible
             int startRow = safeGhostRow + (i % 2);
             int startCol = safeGhostCol - (i / 2);
@@ -98,6 +123,11 @@ public class GameEngine {
         if (isGameOver || isVictory || !isRunning) {
             level = 1;
             pacMan.resetScore();
+            gameTicks = 0;
+            scoreRecorded = false;
+            // Every game gets its own seed, so the one saved with its score replays it
+            if (seedUsed) setSeed(nextGameSeed(seed));
+            seedUsed = true;
         }
 
         isRunning = true;
@@ -131,14 +161,21 @@ public class GameEngine {
 
         // 2. Update Ghost movement (delayed speed)
         ticks++;
+        gameTicks++;
         if (ticks % GHOST_SPEED_DELAY == 0) {
-            for (Ghost ghost : ghosts) {
-                updateGhostPosition(ghost);
+            for (int i = 0; i < ghosts.size(); i++) {
+                updateGhostPosition(ghosts.get(i));
             }
         }
 
         // 3. Check collisions (only after movement/updates)
         checkGhostPacManCollision();
+
+        // 4. Deliver this tick's events to listeners, off the movement/collision path
+        eventBus.flush();
+
+        // 5. Emit the state delta for spectators and recorders
+        if (stateRecorder != null) stateRecorder.recordTick();
     }
     
     // --- Collision Logic (assuming this part is correct but showing for context) ---
@@ -147,9 +184,11 @@ public class GameEngine {
             if (pacMan.isPowerUpActive()) {
                 // Pac-Man eats Ghost
                 pacMan.increaseScore(200);
+                eventBus.publish(GameEventType.GHOST_EATEN, ghost.getRow(), ghost.getCol(), 200);
                 respawnGhost(ghost);
             } else {
                 // Ghost eats Pac-Man
+                eventBus.publish(GameEventType.PACMAN_CAUGHT, pacMan.getRow(), pacMan.getCol(), pacMan.getScore());
                 isGameOver = true;
                 isRunning = false;
             }
@@ -157,8 +196,8 @@ public class GameEngine {
     }
 
     private void checkGhostPacManCollision() {
-        for (Ghost ghost : ghosts) {
-            checkCollision(ghost);
+        for (int i = 0; i < ghosts.size(); i++) {
+            checkCollision(ghosts.get(i));
             if (isGameOver) return;
         }
     }
@@ -169,20 +208,15 @@ public class GameEngine {
         
         if (pacMan.isPowerUpActive()) {
             // --- Fleeing/Frightened State: Use Random Valid Movement ---
-            List<int[]> validMoves = new ArrayList<>();
-            for (int[] dir : DIRECTIONS) {
-                int r = ghost.getRow() + dir[0];
-                int c = ghost.getCol() + dir[1];
-                
-                // Ensure the move doesn't go back into the wall
-                if (!map.isWall(r, c)) {
-                    validMoves.add(dir);
-                }
-            }
+            int validMoves = openDirections(ghost.getRow(), ghost.getCol());
             
-            if (!validMoves.isEmpty()) {
-                // Pick a random valid direction
-                int[] chosenDir = validMoves.get(random.nextInt(validMoves.size()));
+            if (validMoves != 0) {
+                // Pick a random valid direction (bits follow the DIRECTIONS order)
+                int pick = random.nextInt(Integer.bitCount(validMoves));
+                for (int i = 0; i < pick; i++) {
+                    validMoves &= validMoves - 1; // Drop the lowest valid direction
+                }
+                int[] chosenDir = DIRECTIONS[Integer.numberOfTrailingZeros(validMoves)];
                 nextRow = ghost.getRow() + chosenDir[0];
                 nextCol = ghost.getCol() + chosenDir[1];
             } else {
@@ -197,9 +231,16 @@ public class GameEngine {
 
             int rowDiff = Integer.compare(targetRow, ghost.getRow());
             int colDiff = Integer.compare(targetCol, ghost.getCol());
-            
-            // Try horizontal movement first if row/col differences are similar
-            if (Math.abs(colDiff) >= Math.abs(rowDiff)) {
+
+            // On large maps, follow the hierarchical path; the greedy step below gets stuck there
+            int pathDirection = pathfinder != null
+                ? pathfinder.nextDirection(ghost.getRow(), ghost.getCol(), targetRow, targetCol) : -1;
+
+            if (pathDirection >= 0) {
+                nextRow += DIRECTIONS[pathDirection][0];
+                nextCol += DIRECTIONS[pathDirection][1];
+            } else if (Math.abs(colDiff) >= Math.abs(rowDiff)) {
+                // Try horizontal movement first if row/col differences are similar
                 nextCol += colDiff;
                 if (map.isWall(nextRow, nextCol)) {
                     // If wall, try vertical movement
@@ -237,6 +278,24 @@ public class GameEngine {
         ghost.setContentUnderGhost(map.getCell(nextRow, nextCol));
     }
 
+    /**
+     * Returns a bit mask of the DIRECTIONS that don't lead into a wall, using the
+     * shared exits table for cells inside the map.
+     */
+    private int openDirections(int row, int col) {
+        MazeTopology topology = map.getTopology();
+        if (topology.inBounds(row, col)) {
+            return topology.getExits(row, col);
+        }
+        // Ghosts can stand in the warp tunnel, just outside the map
+        int mask = 0;
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            if (!map.isWall(row + DIRECTIONS[d][0], col + DIRECTIONS[d][1])) {
+                mask |= 1 << d;
+            }
+        }
+        return mask;
+    }
 
     private void respawnGhost(Ghost ghost) {
         int attempts = 0;
@@ -283,12 +342,14 @@ public class GameEngine {
     
     private void checkVictoryCondition() {
          if (map.getPelletsRemaining() == 0) {
+            eventBus.publish(GameEventType.LEVEL_COMPLETE, pacMan.getRow(), pacMan.getCol(), level);
             if (level < MAX_LEVELS) {
                 // Advance to next level
                 level++;
                 startNewGame(); // Recursively starts the next level
             } else {
                 // Ultimate victory
+                eventBus.publish(GameEventType.VICTORY, pacMan.getRow(), pacMan.getCol(), pacMan.getScore());
                 isVictory = true;
                 isRunning = false;
             }
@@ -296,6 +357,74 @@ public class GameEngine {
     }
 
 
+    /**
+     * Returns the engine's state delta recorder, creating it on first use. The recorder is
+     * shared, so it writes keyframes at the smallest non-zero interval any caller asked for.
+     * @param keyframeInterval Ticks between periodic keyframes (0 = only when required).
+     */
+    public StateDeltaRecorder startStateRecording(int keyframeInterval) {
+        if (keyframeInterval < 0) {
+            throw new IllegalArgumentException("Keyframe interval must not be negative, got " + keyframeInterval);
+        }
+        if (stateRecorder == null) {
+            stateRecorder = new StateDeltaRecorder(this, keyframeInterval);
+        } else {
+            stateRecorder.requestKeyframeInterval(keyframeInterval);
+        }
+        return stateRecorder;
+    }
+
+    /**
+     * Re-seeds the engine's random number generator so a game can be reproduced. The next
+     * new game starts from this seed; games after it derive theirs with nextGameSeed().
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        random.setSeed(seed);
+        seedUsed = false;
+    }
+
+    /**
+     * Restores the seed of a game already in progress, e.g. when rebuilding a saved session.
+     * Unlike setSeed(), the next new game moves on to a fresh seed.
+     */
+    public void restoreSeed(long seed) {
+        setSeed(seed);
+        seedUsed = true;
+    }
+
+    /**
+     * The seed of the game after one started from the given seed (a SplitMix64 step), so
+     * a run of games is reproducible from its first seed and each game from its own.
+     */
+    static long nextGameSeed(long seed) {
+        long z = seed + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Overwrites the level progression state, e.g. when rebuilding a recorded game.
+     */
+    public void restoreProgress(int level, int ticks, int gameTicks, boolean running, boolean gameOver,
+                                boolean victory) {
+        this.level = level;
+        this.ticks = ticks;
+        this.gameTicks = gameTicks;
+        this.isRunning = running;
+        this.isGameOver = gameOver;
+        this.isVictory = victory;
+    }
+
+    /**
+     * Marks the current game's final score as saved, so a rewound game isn't scored again.
+     * Not part of the saved state: rewinding keeps the mark until the next game starts.
+     */
+    public void markScoreRecorded() {
+        scoreRecorded = true;
+    }
+
     // --- Public Getters for GUI Rendering ---
     public boolean isRunning() { return isRunning; }
     public boolean isGameOver() { return isGameOver; }
@@ -303,7 +432,13 @@ public class GameEngine {
     public PacManCharacter getPacMan() { return pacMan; }
     public List<Ghost> getGhosts() { return ghosts; }
     public Map getMap() { return map; }
+    public GameEventBus getEventBus() { return eventBus; }
     public int getLevel() { return level; }
     public int getMaxLevels() { return MAX_LEVELS; }
+    public int getTicks() { return ticks; }
+    public int getGameTicks() { return gameTicks; }
+    public long getSeed() { return seed; }
+    public boolean isScoreRecorded() { return scoreRecorded; }
+    public int getBaseGhosts() { return baseGhosts; }
     public void quitGame() { isRunning = false; }
 }
\ No newline at end of file
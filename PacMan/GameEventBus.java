@@ -0,0 +1,104 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects gameplay events during a tick and hands them to registered listeners in one
+ * batch when the tick ends. Events are stored in a preallocated ring buffer of primitive
+ * arrays, so publishing never allocates. A tick that publishes more events than fit
+ * doubles the buffer once; listeners still only run from flush().
+ */
+public class GameEventBus {
+    private static final int DEFAULT_CAPACITY = 32; // A tick rarely publishes more than a handful of events; grows if needed
+    private static final GameEventType[] TYPES = GameEventType.values();
+
+    // --- Ring Buffer Storage (one slot per event) ---
+    private int[] types;
+    private int[] rows;
+    private int[] cols;
+    private int[] values;
+    private int mask;
+    private int head = 0; // Index of the oldest undelivered event
+    private int size = 0;
+
+    private final List<GameEventListener> listeners = new ArrayList<>();
+
+    public GameEventBus() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity Number of events buffered per batch, rounded up to a power of two.
+     */
+    public GameEventBus(int capacity) {
+        int slots = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.types = new int[slots];
+        this.rows = new int[slots];
+        this.cols = new int[slots];
+        this.values = new int[slots];
+        this.mask = slots - 1;
+    }
+
+    public void addListener(GameEventListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(GameEventListener listener) {
+        listeners.remove(listener);
+    }
+
+    public boolean hasListeners() { return !listeners.isEmpty(); }
+
+    /**
+     * Buffers an event for delivery at the end of the current tick.
+     */
+    public void publish(GameEventType type, int row, int col, int value) {
+        if (listeners.isEmpty()) return;
+        if (size == types.length) {
+            // Buffer full: make room rather than delivering mid-tick or dropping events
+            grow();
+        }
+        int slot = (head + size) & mask;
+        types[slot] = type.ordinal();
+        rows[slot] = row;
+        cols[slot] = col;
+        values[slot] = value;
+        size++;
+    }
+
+    public int getCapacity() { return types.length; }
+
+    // Doubles the buffer, moving the pending events to the front in delivery order
+    private void grow() {
+        types = unwrap(types);
+        rows = unwrap(rows);
+        cols = unwrap(cols);
+        values = unwrap(values);
+        head = 0;
+        mask = types.length - 1;
+    }
+
+    private int[] unwrap(int[] ring) {
+        int[] grown = new int[ring.length * 2];
+        int firstPart = ring.length - head;
+        System.arraycopy(ring, head, grown, 0, firstPart);
+        System.arraycopy(ring, 0, grown, firstPart, head);
+        return grown;
+    }
+
+    /**
+     * Delivers all buffered events to every listener and empties the buffer.
+     */
+    public void flush() {
+        if (size == 0) return;
+        for (int l = 0; l < listeners.size(); l++) {
+            GameEventListener listener = listeners.get(l);
+            for (int i = 0; i < size; i++) {
+                int slot = (head + i) & mask;
+                listener.onEvent(TYPES[types[slot]], rows[slot], cols[slot], values[slot]);
+            }
+            listener.onBatchEnd();
+        }
+        head = (head + size) & mask;
+        size = 0;
+    }
+}
@@ -0,0 +1,22 @@
+/**
+ * Receives gameplay events from the GameEventBus. Events arrive in batches once per
+ * game tick, after the engine has finished updating, so listeners never run inside
+ * the movement and collision logic.
+ */
+public interface GameEventListener {
+
+    /**
+     * Called once for every event published during the tick, in publication order.
+     * @param type  The kind of event.
+     * @param row   Grid row where the event happened.
+     * @param col   Grid column where the event happened.
+     * @param value Event specific payload (points, level number, ...).
+     */
+    void onEvent(GameEventType type, int row, int col, int value);
+
+    /**
+     * Called after the last event of a batch has been delivered.
+     */
+    default void onBatchEnd() {
+    }
+}
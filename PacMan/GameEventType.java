@@ -0,0 +1,11 @@
+/**
+ * The kinds of gameplay events published through the GameEventBus.
+ */
+public enum GameEventType {
+    PELLET_EATEN,    // Pac-Man consumed a pellet (value = points gained)
+    POWER_UP_EATEN,  // Pac-Man picked up a power-up
+    GHOST_EATEN,     // A frightened ghost was eaten (value = points gained)
+    PACMAN_CAUGHT,   // A ghost caught Pac-Man, game over (value = final score)
+    LEVEL_COMPLETE,  // All pellets cleared (value = the level just finished)
+    VICTORY          // The final level was cleared (value = final score)
+}
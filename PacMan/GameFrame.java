@@ -6,18 +6,27 @@ import java.awt.event.KeyEvent;
  * Sets up the main JFrame and Menu Bar for the Pac-Man application.
  */
 public class GameFrame extends JFrame {
+    private static final int LEADERBOARD_SIZE = 10;
+
     private final GameEngine engine;
+    private final HighScoreStore highScores; // May be null when no log could be opened
     private GamePanel gamePanel;
 
     public GameFrame(String title, GameEngine engine) {
+        this(title, engine, null);
+    }
+
+    public GameFrame(String title, GameEngine engine, HighScoreStore highScores) {
         super(title);
         this.engine = engine;
+        this.highScores = highScores;
         initUI();
     }
 
     private void initUI() {
         // --- Setup Panel and Frame ---\n
         gamePanel = new GamePanel(engine);
+        gamePanel.enableRewind();
         add(gamePanel);
         setJMenuBar(createMenuBar());
 
@@ -54,7 +63,32 @@ public class GameFrame extends JFrame {
             gamePanel.requestFocusInWindow();
         });
 
-        // 2. Quit Item
+        // 2. Performance HUD Toggle
+        JMenuItem hudItem = new JMenuItem("Performance HUD (P)");
+        hudItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_P, ActionEvent.CTRL_MASK));
+        hudItem.addActionListener(e -> {
+            gamePanel.togglePerformanceHud();
+            gamePanel.requestFocusInWindow();
+        });
+
+        // 3. Rewind
+        JMenuItem rewindItem = new JMenuItem("Rewind 5 Seconds (R)");
+        rewindItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_R, ActionEvent.CTRL_MASK));
+        rewindItem.addActionListener(e -> {
+            gamePanel.rewind();
+            gamePanel.requestFocusInWindow();
+        });
+
+        // 4. High Scores
+        JMenuItem highScoresItem = new JMenuItem("High Scores (H)");
+        highScoresItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_H, ActionEvent.CTRL_MASK));
+        highScoresItem.setEnabled(highScores != null);
+        highScoresItem.addActionListener(e -> {
+            showHighScores();
+            gamePanel.requestFocusInWindow();
+        });
+
+        // 5. Quit Item
         JMenuItem quitItem = new JMenuItem("Quit (Q)");
         quitItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Q, ActionEvent.CTRL_MASK));
         quitItem.addActionListener(e -> {
@@ -63,9 +97,22 @@ public class GameFrame extends JFrame {
         });
 
         gameMenu.add(newGameItem);
+        gameMenu.add(rewindItem);
+        gameMenu.add(hudItem);
+        gameMenu.add(highScoresItem);
         gameMenu.addSeparator();
         gameMenu.add(quitItem);
         menuBar.add(gameMenu);
         return menuBar;
     }
-}
\ No newline at end of file
+
+    private void showHighScores() {
+        StringBuilder text = new StringBuilder();
+        int rank = 1;
+        for (HighScore score : highScores.getTopScores(LEADERBOARD_SIZE)) {
+            text.append(rank++).append(". ").append(score).append('\n');
+        }
+        if (rank == 1) text.append("No games recorded yet.");
+        JOptionPane.showMessageDialog(this, text.toString(), "High Scores", JOptionPane.INFORMATION_MESSAGE);
+    }
+}
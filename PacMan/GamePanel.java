@@ -2,6 +2,9 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Handles the graphical rendering of the game state using Swing.
@@ -9,8 +12,55 @@ import java.awt.event.ActionListener;
 public class GamePanel extends JPanel implements ActionListener {
     private final GameEngine engine;
     private final Timer gameLoopTimer;
+    private final PerformanceHud performanceHud;
+    private RewindBuffer rewindBuffer; // Null until enableRewind(), so headless renderers don't pay for it
+    private boolean reviewingEndedGame = false; // Rewound after game over/victory: view-only until a new game
     private static final int TILE_SIZE = 30; // Size of each grid cell in pixels
-    private static final int DELAY = 150; // Game loop delay in milliseconds (affects speed)
+    private static final int DELAY = GameEngine.TICK_MILLIS; // Game loop delay in milliseconds (affects speed)
+    private static final int REWIND_SECONDS = 5;
+    private static final int REWIND_TICKS = REWIND_SECONDS * 1000 / DELAY;
+    private static final int REWIND_HISTORY_TICKS = 6 * REWIND_TICKS; // Allows rewinding several times in a row
+    private static final int REWIND_KEYFRAME_INTERVAL = 16;
+    private static final int REWIND_BUFFER_BYTES = 1 << 20;
+
+    // --- Drawing Resources (created once, not per frame) ---
+    private static final Color WALL_COLOR = Color.BLUE.darker().darker();
+    private static final Color END_OVERLAY_COLOR = new Color(0, 0, 0, 200);
+    private static final Color[] GHOST_COLORS = {Color.RED, Color.PINK, Color.CYAN, Color.MAGENTA};
+    private static final Font STATUS_FONT = new Font("Monospaced", Font.BOLD, 18);
+    private static final Font END_TITLE_FONT = new Font("Monospaced", Font.BOLD, 48);
+    private static final Font END_HINT_FONT = new Font("Monospaced", Font.PLAIN, 24);
+
+    // Sprites drawn once: antialiased shape fills allocate on every call, image copies don't
+    private static final BufferedImage PELLET_SPRITE = createSprite(g -> {
+        g.setColor(Color.WHITE);
+        g.fillOval(TILE_SIZE / 2 - 2, TILE_SIZE / 2 - 2, 4, 4);
+    });
+    private static final BufferedImage POWER_UP_SPRITE = createSprite(g -> {
+        g.setColor(Color.ORANGE);
+        g.fillOval(TILE_SIZE / 2 - 6, TILE_SIZE / 2 - 6, 12, 12);
+    });
+    private static final BufferedImage[] GHOST_SPRITES = new BufferedImage[GHOST_COLORS.length];
+    private static final BufferedImage FRIGHTENED_GHOST_SPRITE = createSprite(g -> drawGhostShape(g, Color.BLUE));
+    private static final BufferedImage PACMAN_SPRITE = createSprite(g -> drawPacManShape(g, Color.YELLOW));
+    private static final BufferedImage INVINCIBLE_PACMAN_SPRITE = createSprite(g -> drawPacManShape(g, Color.GREEN));
+    static {
+        for (int i = 0; i < GHOST_COLORS.length; i++) {
+            Color body = GHOST_COLORS[i];
+            GHOST_SPRITES[i] = createSprite(g -> drawGhostShape(g, body));
+        }
+    }
+
+    // Status texts, rebuilt only when the value they show changes
+    private int shownScore = -1;
+    private int shownLevel = -1;
+    private int shownPowerUpTime = -1;
+    private String scoreText;
+    private String levelText;
+    private String powerUpText;
+    // End screen drawn once per message: switching fonts allocates on every frame
+    private BufferedImage endScreen;
+    private String endScreenMessage;
 
     public GamePanel(GameEngine engine) {
         this.engine = engine;
@@ -20,6 +70,10 @@ public class GamePanel extends JPanel implements ActionListener {
 
         // Setup game timer for continuous updates
         gameLoopTimer = new Timer(DELAY, this);
+        performanceHud = new PerformanceHud(DELAY);
+        engine.getEventBus().addListener((type, row, col, value) -> {
+            if (type == GameEventType.LEVEL_COMPLETE) performanceHud.markLevelStart();
+        });
 
         // Add Key Listener for Pac-ManCharacter control
         setFocusable(true);
@@ -32,7 +86,16 @@ public class GamePanel extends JPanel implements ActionListener {
         return gameLoopTimer.isRunning();
     }
 
+    /**
+     * Starts the game loop. While an ended game is being reviewed it only starts once
+     * the engine has begun a new game.
+     */
     public void startTimer() {
+        if (reviewingEndedGame) {
+            if (!engine.isRunning()) return;
+            reviewingEndedGame = false;
+        }
+        performanceHud.markLevelStart();
         gameLoopTimer.start();
     }
 
@@ -40,17 +103,52 @@ public class GamePanel extends JPanel implements ActionListener {
         gameLoopTimer.stop();
     }
 
+    /**
+     * Starts keeping the last ticks so rewind() can return to them.
+     */
+    public void enableRewind() {
+        if (rewindBuffer == null) {
+            rewindBuffer = new RewindBuffer(engine, REWIND_HISTORY_TICKS, REWIND_KEYFRAME_INTERVAL, REWIND_BUFFER_BYTES);
+        }
+    }
+
+    /**
+     * Rewinds the game by REWIND_SECONDS and resumes it. After a game over or victory the
+     * rewound state is only shown, so the last moves can be stepped back through: the
+     * game stays paused and can't be played on, as its score has already been saved.
+     */
+    public void rewind() {
+        if (rewindBuffer == null) return;
+        boolean ended = reviewingEndedGame || engine.isGameOver() || engine.isVictory();
+        if (rewindBuffer.rewind(REWIND_TICKS) > 0) {
+            if (ended) {
+                reviewingEndedGame = true;
+                engine.quitGame(); // The next startNewGame() begins a fresh game at level 1
+            } else if (engine.isRunning() && !gameLoopTimer.isRunning()) {
+                startTimer();
+            }
+            repaint();
+        }
+    }
+
+    public void togglePerformanceHud() {
+        performanceHud.toggle();
+        repaint();
+    }
+
     // Called automatically by the Timer (ActionListener interface)
     @Override
     public void actionPerformed(ActionEvent e) {
+        long tickStart = System.nanoTime();
         engine.update();
+        performanceHud.recordTick(System.nanoTime() - tickStart);
         if (engine.isGameOver() || engine.isVictory()) {
             gameLoopTimer.stop();
             // Trigger a final repaint to show the game over/victory state
             repaint();
 
             // Display result message
-            String message = engine.isVictory() ? "VICTORY! Press N for New Game." : "GAME OVER! Press N for New Game.";
+            String message = (engine.isVictory() ? "VICTORY!" : "GAME OVER!") + " Press N for New Game, R to rewind.";
             JOptionPane.showMessageDialog(this, message, "Game Ended", JOptionPane.INFORMATION_MESSAGE);
         } else {
             repaint();
@@ -61,7 +159,28 @@ public class GamePanel extends JPanel implements ActionListener {
 
     @Override
     protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
+        performanceHud.beginFrame();
+        long paintStart = System.nanoTime();
+        renderFrame(g); // Fills the whole panel, so JComponent's background pass isn't needed
+
+        // Draw the performance overlay (no-op while hidden)
+        performanceHud.recordPaint(System.nanoTime() - paintStart);
+        performanceHud.draw(g, engine, getWidth());
+
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+    /**
+     * Renders the current game state onto any Graphics, e.g. an offscreen BufferedImage
+     * when exporting frames without a display. The panel's size sets the frame size.
+     */
+    public void renderFrame(Graphics g) {
+        g.setColor(getBackground());
+        g.fillRect(0, 0, getWidth(), getHeight());
+        drawGame(g);
+    }
+
+    private void drawGame(Graphics g) {
         // Cast to Graphics2D for anti-aliasing (smoother drawing)
         Graphics2D g2d = (Graphics2D) g;
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
@@ -84,8 +203,6 @@ public class GamePanel extends JPanel implements ActionListener {
         } else if (engine.isVictory()) {
             drawEndScreen(g, "VICTORY", Color.CYAN);
         }
-
-        Toolkit.getDefaultToolkit().sync();
     }
 
     /**
@@ -104,7 +221,7 @@ public class GamePanel extends JPanel implements ActionListener {
                 char content = map.getCell(r, c);
 
                 if (content == Map.WALL) {
-                    g.setColor(Color.BLUE.darker().darker());
+                    g.setColor(WALL_COLOR);
                     g.fillRect(x, y, TILE_SIZE, TILE_SIZE);
                     // Add a small border effect
                     g.setColor(Color.BLUE);
@@ -113,13 +230,11 @@ public class GamePanel extends JPanel implements ActionListener {
                     // Draw Pellets
                     if (map.hasPellet(r, c)) {
                         if (content == Map.PELLET) {
-                            g.setColor(Color.WHITE);
-                            g.fillOval(x + TILE_SIZE / 2 - 2, y + TILE_SIZE / 2 - 2, 4, 4);
+                            g.drawImage(PELLET_SPRITE, x, y, null);
                         }
                         // Draw Power Ups (Bigger dot)
                         else if (content == Map.POWER_UP) {
-                            g.setColor(Color.ORANGE);
-                            g.fillOval(x + TILE_SIZE / 2 - 6, y + TILE_SIZE / 2 - 6, 12, 12);
+                            g.drawImage(POWER_UP_SPRITE, x, y, null);
                         }
                     }
                 }
@@ -132,38 +247,62 @@ public class GamePanel extends JPanel implements ActionListener {
      */
     private void drawGhosts(Graphics g) {
         PacManCharacter pacMan = engine.getPacMan();
+        List<Ghost> ghosts = engine.getGhosts();
 
-        for (Ghost ghost : engine.getGhosts()) {
+        for (int i = 0; i < ghosts.size(); i++) {
+            Ghost ghost = ghosts.get(i);
             int ghostX = ghost.getCol() * TILE_SIZE;
             int ghostY = ghost.getRow() * TILE_SIZE;
 
             // Determine ghost color
+            BufferedImage sprite;
             if (pacMan.isPowerUpActive()) {
                 // Frightened state
-                g.setColor(Color.BLUE);
+                sprite = FRIGHTENED_GHOST_SPRITE;
             } else {
                 // Regular state (using different colors for distinction)
-                if (engine.getGhosts().indexOf(ghost) == 0) g.setColor(Color.RED);
-                else if (engine.getGhosts().indexOf(ghost) == 1) g.setColor(Color.PINK);
-                else if (engine.getGhosts().indexOf(ghost) == 2) g.setColor(Color.CYAN);
-                else g.setColor(Color.MAGENTA);
+                sprite = GHOST_SPRITES[Math.min(i, GHOST_SPRITES.length - 1)];
             }
-
-            // Draw the ghost body as a rounded square with a "skirt"
-            g.fillRoundRect(ghostX + 2, ghostY + 2, TILE_SIZE - 4, TILE_SIZE - 4, 10, 10);
-            
-            // Draw eyes (white for sclera)
-            g.setColor(Color.WHITE);
-            g.fillOval(ghostX + 6, ghostY + 8, 8, 8);
-            g.fillOval(ghostX + TILE_SIZE - 14, ghostY + 8, 8, 8);
-            
-            // Draw pupils (black)
-            g.setColor(Color.BLACK);
-            g.fillOval(ghostX + 8, ghostY + 10, 4, 4);
-            g.fillOval(ghostX + TILE_SIZE - 12, ghostY + 10, 4, 4);
+            g.drawImage(sprite, ghostX, ghostY, null);
         }
     }
 
+    /**
+     * Draws a ghost into a sprite: a rounded square body with eyes.
+     */
+    private static void drawGhostShape(Graphics g, Color body) {
+        // Draw the ghost body as a rounded square with a "skirt"
+        g.setColor(body);
+        g.fillRoundRect(2, 2, TILE_SIZE - 4, TILE_SIZE - 4, 10, 10);
+
+        // Draw eyes (white for sclera)
+        g.setColor(Color.WHITE);
+        g.fillOval(6, 8, 8, 8);
+        g.fillOval(TILE_SIZE - 14, 8, 8, 8);
+
+        // Draw pupils (black)
+        g.setColor(Color.BLACK);
+        g.fillOval(8, 10, 4, 4);
+        g.fillOval(TILE_SIZE - 12, 10, 4, 4);
+    }
+
+    /**
+     * Draws Pac-Man into a sprite as a simple arc/circle.
+     */
+    private static void drawPacManShape(Graphics g, Color color) {
+        g.setColor(color);
+        g.fillArc(2, 2, TILE_SIZE - 4, TILE_SIZE - 4, 45, 270);
+    }
+
+    private static BufferedImage createSprite(Consumer<Graphics2D> painter) {
+        BufferedImage sprite = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = sprite.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        painter.accept(g);
+        g.dispose();
+        return sprite;
+    }
+
     /**
      * Draws the Pac-Man character.
      */
@@ -175,14 +314,7 @@ public class GamePanel extends JPanel implements ActionListener {
         int pacY = pacMan.getRow() * TILE_SIZE;
 
         // Pac-Man color: Yellow, or Green if invincible
-        g.setColor(pacManInvincible ? Color.GREEN : Color.YELLOW);
-        // Draw Pac-Man as a simple arc/circle
-        g.fillArc(pacX + 2, pacY + 2, TILE_SIZE - 4, TILE_SIZE - 4, 45, 270);
-
-        // 4. Draw Status Overlay
-        drawStatus(g);
-
-        Toolkit.getDefaultToolkit().sync();
+        g.drawImage(pacManInvincible ? INVINCIBLE_PACMAN_SPRITE : PACMAN_SPRITE, pacX, pacY, null);
     }
 
     /**
@@ -197,18 +329,27 @@ public class GamePanel extends JPanel implements ActionListener {
         // g.fillRect(0, 0, this.getWidth(), boxHeight);
 
         g.setColor(Color.WHITE);
-        g.setFont(new Font("Monospaced", Font.BOLD, 18));
+        g.setFont(STATUS_FONT);
 
-        String scoreText = String.format("Score: %d", pacMan.getScore());
-        String levelText = String.format("Level %d / %d", engine.getLevel(), engine.getMaxLevels());
+        if (pacMan.getScore() != shownScore) {
+            shownScore = pacMan.getScore();
+            scoreText = "Score: " + shownScore;
+        }
+        if (engine.getLevel() != shownLevel) {
+            shownLevel = engine.getLevel();
+            levelText = "Level " + shownLevel + " / " + engine.getMaxLevels();
+        }
 
         g.drawString(scoreText, 10, 20);
         g.drawString(levelText, 10, 40);
 
         if (pacMan.isPowerUpActive()) {
             g.setColor(Color.GREEN);
-            String powerUpTime = String.format("POWER UP: %d sec", pacMan.getPowerUpTimeLeft());
-            g.drawString(powerUpTime, this.getWidth() - 200, 40);
+            if (pacMan.getPowerUpTimeLeft() != shownPowerUpTime) {
+                shownPowerUpTime = pacMan.getPowerUpTimeLeft();
+                powerUpText = "POWER UP: " + shownPowerUpTime + " sec";
+            }
+            g.drawString(powerUpText, this.getWidth() - 200, 40);
         }
     }
 
@@ -216,11 +357,24 @@ public class GamePanel extends JPanel implements ActionListener {
      * Draws the final game message (GAME OVER or VICTORY).
      */
     private void drawEndScreen(Graphics g, String message, Color color) {
-        g.setColor(new Color(0, 0, 0, 200)); // Dark overlay
+        if (endScreen == null || !message.equals(endScreenMessage)
+                || endScreen.getWidth() != getWidth() || endScreen.getHeight() != getHeight()) {
+            endScreen = new BufferedImage(Math.max(1, getWidth()), Math.max(1, getHeight()), BufferedImage.TYPE_INT_ARGB);
+            endScreenMessage = message;
+            Graphics2D eg = endScreen.createGraphics();
+            eg.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            renderEndScreen(eg, message, color);
+            eg.dispose();
+        }
+        g.drawImage(endScreen, 0, 0, null);
+    }
+
+    private void renderEndScreen(Graphics g, String message, Color color) {
+        g.setColor(END_OVERLAY_COLOR); // Dark overlay
         g.fillRect(0, 0, this.getWidth(), this.getHeight());
 
         g.setColor(color);
-        g.setFont(new Font("Monospaced", Font.BOLD, 48));
+        g.setFont(END_TITLE_FONT);
         
         FontMetrics fm = g.getFontMetrics();
         int x = (this.getWidth() - fm.stringWidth(message)) / 2;
@@ -228,7 +382,7 @@ public class GamePanel extends JPanel implements ActionListener {
 
         g.drawString(message, x, y);
 
-        g.setFont(new Font("Monospaced", Font.PLAIN, 24));
+        g.setFont(END_HINT_FONT);
         String instruction = "Press Ctrl+N to start a New Game.";
         fm = g.getFontMetrics();
         x = (this.getWidth() - fm.stringWidth(instruction)) / 2;
@@ -0,0 +1,82 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A recorded game loaded into memory, with an index of its frames so any frame can be
+ * reconstructed from the nearest keyframe before it. Read-only, so any number of
+ * threads can rebuild different parts of the game at once.
+ */
+public class GameRecording {
+    private final byte[] data;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final int frameCount;
+
+    public GameRecording(Path file) throws IOException {
+        this.data = Files.readAllBytes(file);
+        ByteBuffer in = ByteBuffer.wrap(data);
+        if (data.length < 8 || in.getInt() != GameRecordingWriter.MAGIC
+                || in.getInt() != GameRecordingWriter.VERSION) {
+            throw new IOException(file + " is not a game recording (version " + GameRecordingWriter.VERSION + ")");
+        }
+
+        // Index every complete frame; a truncated last frame (e.g. after a crash) is ignored
+        int[] frameOffsets = new int[256];
+        int[] frameLengths = new int[256];
+        int count = 0;
+        while (in.remaining() >= 4) {
+            int length = in.getInt();
+            if (length <= 0 || length > in.remaining()) break;
+            if (count == frameOffsets.length) {
+                frameOffsets = Arrays.copyOf(frameOffsets, count * 2);
+                frameLengths = Arrays.copyOf(frameLengths, count * 2);
+            }
+            frameOffsets[count] = in.position();
+            frameLengths[count] = length;
+            count++;
+            in.position(in.position() + length);
+        }
+        if (count == 0 || data[frameOffsets[0]] != StateCodec.KEYFRAME) {
+            throw new IOException(file + " does not start with a keyframe");
+        }
+        this.offsets = frameOffsets;
+        this.lengths = frameLengths;
+        this.frameCount = count;
+    }
+
+    public int getFrameCount() { return frameCount; }
+
+    public boolean isKeyframe(int frame) {
+        return data[offsets[frame]] == StateCodec.KEYFRAME;
+    }
+
+    /**
+     * Returns the last keyframe at or before the given frame.
+     */
+    public int keyframeBefore(int frame) {
+        while (!isKeyframe(frame)) frame--;
+        return frame;
+    }
+
+    /**
+     * Creates an engine holding the state of the given frame.
+     */
+    public GameEngine reconstruct(int frame, StateReader reader) {
+        int keyframe = keyframeBefore(frame);
+        GameEngine engine = StateCodec.newReplica(reader.wrap(data, offsets[keyframe], lengths[keyframe]));
+        for (int i = keyframe + 1; i <= frame; i++) {
+            apply(i, engine, reader);
+        }
+        return engine;
+    }
+
+    /**
+     * Applies one frame to an engine that holds the state of the frame before it.
+     */
+    public void apply(int frame, GameEngine engine, StateReader reader) {
+        StateCodec.apply(reader.wrap(data, offsets[frame], lengths[frame]), engine);
+    }
+}
@@ -0,0 +1,60 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Saves the frames of a StateDeltaRecorder to a file that GameRecording can load.
+ *
+ * File layout: MAGIC, VERSION, then for every frame its length (int) and bytes.
+ * Whether a frame is a keyframe is read from its first byte (see StateCodec).
+ *
+ * close() may run on a shutdown hook while the game loop is still recording, so frames
+ * and close() are serialized; frames that arrive after close() are dropped.
+ */
+public class GameRecordingWriter implements StateDeltaConsumer, AutoCloseable {
+    public static final int MAGIC = 0x50414352; // "PACR"
+    public static final int VERSION = 2; // 2: frames carry the game ticks
+    public static final int KEYFRAME_INTERVAL = 64; // Bounds the catch-up work when seeking into a recording
+
+    private final DataOutputStream out;
+    private IOException failure; // First write error; recording stops there and close() reports it
+    private int frames = 0;
+    private boolean closed = false;
+
+    public GameRecordingWriter(Path file) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    /**
+     * Starts recording an engine into this file.
+     */
+    public void attachTo(GameEngine engine) {
+        engine.startStateRecording(KEYFRAME_INTERVAL).addConsumer(this);
+    }
+
+    @Override
+    public synchronized void onFrame(byte[] data, int length, boolean keyframe) {
+        if (closed || failure != null) return;
+        try {
+            out.writeInt(length);
+            out.write(data, 0, length);
+            frames++;
+        } catch (IOException e) {
+            failure = e; // Never let a full disk stop the game loop
+        }
+    }
+
+    public synchronized int getFrameCount() { return frames; }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        out.close();
+        if (failure != null) throw failure;
+    }
+}
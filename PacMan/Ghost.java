@@ -1,10 +1,7 @@
-import java.util.Random;
-
 /**
  * Represents an enemy Ghost with chase and flee behavior. Extends GameObject.
  */
 public class Ghost extends GameObject {
-    private final Random random = new Random();
     private char contentUnderGhost = Map.EMPTY; // The map content this ghost is covering
 
     public Ghost(int initialRow, int initialCol) {
@@ -0,0 +1,223 @@
+import java.util.Arrays;
+
+/**
+ * Chase pathfinding for large maps, built on the shared MazeClusterGraph.
+ * A query only searches the ghost's own cluster and the target's cluster cell by cell;
+ * everything in between comes from distance fields over the abstract entrance graph.
+ * Those fields depend only on the target's cluster, so the graph builds them once and
+ * every ghost of every session on this map size reuses them. While a cluster's fields are
+ * still being built in the background, a query runs its own A* over the abstract graph
+ * instead; both give the same distances, so ghosts move the same either way.
+ *
+ * One instance belongs to one engine; it keeps scratch buffers, so a query never
+ * allocates, and it is not thread-safe.
+ */
+public class HierarchicalPathfinder {
+    private static final int INFINITY = MazeClusterGraph.UNREACHABLE;
+    private static final int CLUSTER_CELLS = MazeClusterGraph.CLUSTER_SIZE * MazeClusterGraph.CLUSTER_SIZE;
+
+    private final MazeTopology topology;
+    private final MazeClusterGraph graph;
+    private final int cols;
+
+    // --- Scratch Buffers (reused by every query) ---
+    private final int[] ghostDist = new int[CLUSTER_CELLS];
+    private final int[] targetDist = new int[CLUSTER_CELLS];
+    private final int[] queue = new int[CLUSTER_CELLS];
+    private int targetDistCell = -1; // Cell that targetDist was computed for
+
+    // --- Fallback Search (used while the target cluster has no fields yet) ---
+    private final long[] heap;       // (distance + estimate) << 32 | node
+    private final int[] nodeDist;    // Distance to the target, valid where nodeSearch == search
+    private final int[] nodeSearch;
+    private int search = 0;
+
+    public HierarchicalPathfinder(MazeTopology topology) {
+        this.topology = topology;
+        this.graph = topology.getClusterGraph();
+        this.cols = topology.getCols();
+        // Every successful relaxation pushes one entry, plus one per starting entrance
+        this.heap = new long[graph.getEdgeCount() + graph.getNodeCount()];
+        this.nodeDist = new int[graph.getNodeCount()];
+        this.nodeSearch = new int[graph.getNodeCount()];
+    }
+
+    /**
+     * Returns the first step of a shortest path from one cell to another, as an index into
+     * the engine's DIRECTIONS (up, down, left, right), or -1 when no path is known.
+     */
+    public int nextDirection(int fromRow, int fromCol, int toRow, int toCol) {
+        if (!topology.inBounds(fromRow, fromCol) || !topology.inBounds(toRow, toCol)
+                || topology.isWall(toRow, toCol)) {
+            return -1;
+        }
+        int from = fromRow * cols + fromCol;
+        int to = toRow * cols + toCol;
+        if (from == to) return -1;
+
+        int fromCluster = graph.clusterOf(fromRow, fromCol);
+        int toCluster = graph.clusterOf(toRow, toCol);
+
+        // Distances inside the target's cluster are shared by every ghost chasing this cell
+        if (targetDistCell != to) {
+            graph.clusterBfs(to, targetDist, queue);
+            targetDistCell = to;
+        }
+        graph.clusterBfs(from, ghostDist, queue);
+
+        int best = INFINITY;
+        int bestCell = -1;      // Walk towards this cell inside the ghost's cluster...
+        int bestDirection = -1; // ...or take this step straight out of the cluster
+
+        // 1. Path that stays inside the shared cluster
+        if (fromCluster == toCluster && ghostDist[graph.localIndex(to)] > 0) {
+            best = ghostDist[graph.localIndex(to)];
+            bestCell = to;
+        }
+
+        // 2. Paths leaving through one of the cluster's entrances
+        int[][] fields = graph.entranceFields(toCluster);
+        if (fields == null) searchTowards(from, fromCluster, toCluster, best);
+        for (int i = graph.clusterNodesStart(fromCluster); i < graph.clusterNodesEnd(fromCluster); i++) {
+            int node = graph.clusterNode(i);
+            int nodeCell = graph.nodeCell(node);
+            int toNode = ghostDist[graph.localIndex(nodeCell)];
+            if (toNode < 0) continue;
+
+            if (toNode > 0) {
+                int cost = toNode + remaining(node, toCluster, fields);
+                if (cost < best) {
+                    best = cost;
+                    bestCell = nodeCell;
+                    bestDirection = -1;
+                }
+                continue;
+            }
+            // Standing on the entrance: cross into the neighbouring cluster
+            for (int e = graph.edgesStart(node); e < graph.edgesEnd(node); e++) {
+                int neighbour = graph.edgeTarget(e);
+                int neighbourCell = graph.nodeCell(neighbour);
+                if (graph.clusterOfCell(neighbourCell) == fromCluster) continue;
+                int cost = graph.edgeCost(e) + remaining(neighbour, toCluster, fields);
+                if (cost < best) {
+                    best = cost;
+                    bestCell = -1;
+                    bestDirection = directionBetween(nodeCell, neighbourCell);
+                }
+            }
+        }
+
+        if (bestCell >= 0) return firstStep(from, bestCell);
+        return bestDirection;
+    }
+
+    // Shortest known distance from an abstract node to the current target cell
+    private int remaining(int node, int toCluster, int[][] fields) {
+        if (fields == null) return nodeSearch[node] == search ? nodeDist[node] : INFINITY;
+        int best = INFINITY;
+        int start = graph.clusterNodesStart(toCluster);
+        for (int k = 0; k < fields.length; k++) {
+            int exit = graph.clusterNode(start + k);
+            int inside = targetDist[graph.localIndex(graph.nodeCell(exit))];
+            if (inside < 0 || fields[k][node] >= INFINITY) continue;
+            best = Math.min(best, fields[k][node] + inside);
+        }
+        return best;
+    }
+
+    /**
+     * A* from the target cluster's entrances towards the ghost, for when the cluster's
+     * fields are not built yet. Leaves in nodeDist the exact remaining distance of every
+     * node that could still improve on the best route, so the caller picks the same step
+     * it would pick from the fields.
+     * @param best Length of the best route already known, INFINITY if none.
+     */
+    private void searchTowards(int from, int fromCluster, int toCluster, int best) {
+        if (++search == 0) {
+            Arrays.fill(nodeSearch, 0);
+            search = 1;
+        }
+        int size = 0;
+        for (int i = graph.clusterNodesStart(toCluster); i < graph.clusterNodesEnd(toCluster); i++) {
+            int exit = graph.clusterNode(i);
+            int inside = targetDist[graph.localIndex(graph.nodeCell(exit))];
+            if (inside < 0) continue;
+            nodeDist[exit] = inside;
+            nodeSearch[exit] = search;
+            heap[size] = ((long) (inside + estimate(exit, from)) << 32) | exit;
+            MazeClusterGraph.siftUp(heap, size++);
+        }
+
+        while (size > 0) {
+            long top = heap[0];
+            heap[0] = heap[--size];
+            MazeClusterGraph.siftDown(heap, size);
+            int node = (int) top;
+            int f = (int) (top >>> 32);
+            if (f > best) break;
+            int d = nodeDist[node];
+            if (f != d + estimate(node, from)) continue; // Stale entry
+
+            boolean inGhostCluster = graph.clusterOfCell(graph.nodeCell(node)) == fromCluster;
+            if (inGhostCluster) {
+                int toNode = ghostDist[graph.localIndex(graph.nodeCell(node))];
+                if (toNode > 0) best = Math.min(best, toNode + d);
+            }
+            for (int e = graph.edgesStart(node); e < graph.edgesEnd(node); e++) {
+                int next = graph.edgeTarget(e);
+                int nd = d + graph.edgeCost(e);
+                // Crossing onto the ghost's own entrance from outside is a route the caller may take
+                if (!inGhostCluster && graph.nodeCell(next) == from) best = Math.min(best, nd);
+                if (nodeSearch[next] == search && nodeDist[next] <= nd) continue;
+                nodeDist[next] = nd;
+                nodeSearch[next] = search;
+                heap[size] = ((long) (nd + estimate(next, from)) << 32) | next;
+                MazeClusterGraph.siftUp(heap, size++);
+            }
+        }
+    }
+
+    // Walking distance never beats the grid distance, as no abstract edge uses the warp tunnel
+    private int estimate(int node, int cell) {
+        int nodeCell = graph.nodeCell(node);
+        return Math.abs(nodeCell / cols - cell / cols) + Math.abs(nodeCell % cols - cell % cols);
+    }
+
+    // Walks back from dest along decreasing ghostDist to find the step taken from `from`
+    private int firstStep(int from, int dest) {
+        int cell = dest;
+        int minRow = from / cols - from / cols % MazeClusterGraph.CLUSTER_SIZE;
+        int minCol = from % cols - from % cols % MazeClusterGraph.CLUSTER_SIZE;
+        while (ghostDist[graph.localIndex(cell)] > 1) {
+            int r = cell / cols;
+            int c = cell % cols;
+            int want = ghostDist[graph.localIndex(cell)] - 1;
+            int exits = topology.getExits(r, c);
+            for (int d = 0; d < 4; d++) {
+                if ((exits & (1 << d)) == 0) continue;
+                int nr = r + MazeClusterGraph.DIR_ROW[d];
+                int nc = c + MazeClusterGraph.DIR_COL[d];
+                if (nr < minRow || nr >= minRow + MazeClusterGraph.CLUSTER_SIZE
+                        || nc < minCol || nc >= minCol + MazeClusterGraph.CLUSTER_SIZE
+                        || !topology.inBounds(nr, nc)) {
+                    continue;
+                }
+                int neighbour = nr * cols + nc;
+                if (ghostDist[graph.localIndex(neighbour)] == want) {
+                    cell = neighbour;
+                    break;
+                }
+            }
+        }
+        return directionBetween(from, cell);
+    }
+
+    private int directionBetween(int fromCell, int toCell) {
+        int dr = toCell / cols - fromCell / cols;
+        int dc = toCell % cols - fromCell % cols;
+        for (int d = 0; d < 4; d++) {
+            if (MazeClusterGraph.DIR_ROW[d] == dr && MazeClusterGraph.DIR_COL[d] == dc) return d;
+        }
+        return -1;
+    }
+}
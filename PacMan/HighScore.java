@@ -0,0 +1,37 @@
+/**
+ * One finished game as kept by the HighScoreStore.
+ */
+public final class HighScore {
+    private final int score;
+    private final int level;
+    private final int ticks;
+    private final long seed;
+    private final long timestamp; // Epoch milliseconds when the game ended
+
+    public HighScore(int score, int level, int ticks, long seed, long timestamp) {
+        this.score = score;
+        this.level = level;
+        this.ticks = ticks;
+        this.seed = seed;
+        this.timestamp = timestamp;
+    }
+
+    public int getScore() { return score; }
+    public int getLevel() { return level; }
+    public int getTicks() { return ticks; }
+    public long getSeed() { return seed; }
+    public long getTimestamp() { return timestamp; }
+
+    /**
+     * True if this score ranks above the other: higher score first, earlier game on ties.
+     */
+    public boolean ranksAbove(HighScore other) {
+        if (score != other.score) return score > other.score;
+        return timestamp < other.timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d (level %d, %d ticks, seed %d)", score, level, ticks, seed);
+    }
+}
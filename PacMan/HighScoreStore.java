@@ -0,0 +1,294 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the final score of every game in an append-only log file that is memory-mapped,
+ * so an append is a handful of plain memory writes. The best TOP_K scores are held in a
+ * sorted array that is replaced as a whole when it changes; leaderboard reads just copy
+ * from it and never touch the file.
+ *
+ * record() only offers the score to a bounded queue; a background thread does the
+ * appending, so the game loop never waits for I/O. Every CHECKPOINT_INTERVAL records,
+ * and whenever the queue runs empty, the header is rewritten with the record count and a
+ * snapshot of the top scores and the mapping is forced to disk, so a crash only loses
+ * scores that were still queued. When the store is opened again the snapshot is loaded
+ * and only the records appended after it are replayed. Each record ends with a checksum,
+ * which is written last, so a record torn by a crash is recognised and recovery stops
+ * there.
+ *
+ * File layout:
+ * Header (HEADER_BYTES): magic, version, checkpointed record count, snapshot size,
+ *                        header checksum, snapshot records...
+ * Records (RECORD_BYTES each): score, level, ticks, seed, timestamp, checksum
+ */
+public class HighScoreStore implements AutoCloseable {
+    public static final int TOP_K = 100;
+
+    private static final int MAGIC = 0x50414348; // "PACH"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4096;
+    private static final int HEADER_FIELDS_BYTES = 20;
+    private static final int RECORD_BYTES = 32;
+    private static final int INITIAL_CAPACITY = 1024; // Records mapped when the file is created
+    private static final int MAX_RECORDS = (Integer.MAX_VALUE - HEADER_BYTES) / RECORD_BYTES;
+    private static final int CHECKPOINT_INTERVAL = 64;
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final HighScore STOP = new HighScore(0, 0, 0, 0, 0); // Wakes the writer to exit
+
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;   // Only touched by the writer thread after the constructor
+    private int capacity;              // Records that fit in the current mapping
+    private int recordCount;
+    private int recordsSinceCheckpoint = 0;
+
+    private volatile HighScore[] topScores = new HighScore[0]; // Sorted best first
+    private final BlockingQueue<HighScore> pending = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicInteger dropped = new AtomicInteger();
+    private final Thread writer;
+    private volatile boolean closed = false;
+
+    /**
+     * Opens the log at the given path, creating it if needed, and recovers its top scores.
+     */
+    public HighScoreStore(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                   StandardOpenOption.WRITE);
+        try {
+            long size = channel.size();
+            int mapped = size < HEADER_BYTES
+                ? INITIAL_CAPACITY
+                : (int) Math.min(MAX_RECORDS, Math.max(INITIAL_CAPACITY, (size - HEADER_BYTES) / RECORD_BYTES));
+            map(mapped);
+            if (size < HEADER_BYTES) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+            } else {
+                recover();
+            }
+            writeCheckpoint();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        writer = new Thread(this::runWriter, "high-score-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Attaches the store to an engine so every finished game is recorded once, even if
+     * it is rewound and ends again.
+     */
+    public void listenTo(GameEngine engine) {
+        engine.getEventBus().addListener((type, row, col, value) -> {
+            if ((type == GameEventType.PACMAN_CAUGHT || type == GameEventType.VICTORY) && !engine.isScoreRecorded()) {
+                engine.markScoreRecorded();
+                record(new HighScore(value, engine.getLevel(), engine.getGameTicks(), engine.getSeed(),
+                                     System.currentTimeMillis()));
+            }
+        });
+    }
+
+    /**
+     * Queues a score for appending. Never blocks: if the writer has fallen behind by
+     * QUEUE_CAPACITY scores, the score is dropped and counted instead.
+     */
+    public void record(HighScore score) {
+        if (closed || !pending.offer(score)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns up to n of the best scores recorded so far, best first.
+     */
+    public List<HighScore> getTopScores(int n) {
+        HighScore[] top = topScores;
+        return List.of(Arrays.copyOf(top, Math.max(0, Math.min(n, top.length))));
+    }
+
+    /**
+     * Returns the best score recorded so far, or 0 if there is none.
+     */
+    public int getBestScore() {
+        HighScore[] top = topScores;
+        return top.length > 0 ? top[0].getScore() : 0;
+    }
+
+    public int getDroppedCount() { return dropped.get(); }
+
+    /**
+     * Appends every queued score, checkpoints the header and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            if (writer.isAlive()) {
+                pending.put(STOP); // Queued after everything record() managed to offer
+                writer.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    // --- Writer Thread ---
+
+    private void runWriter() {
+        try {
+            while (true) {
+                HighScore score = pending.take();
+                if (score == STOP) break;
+                append(score);
+                if (++recordsSinceCheckpoint >= CHECKPOINT_INTERVAL || pending.isEmpty()) {
+                    writeCheckpoint();
+                }
+            }
+            writeCheckpoint();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("High-score log stopped: " + e.getMessage());
+        }
+    }
+
+    private void append(HighScore score) throws IOException {
+        if (recordCount == capacity) {
+            if (capacity == MAX_RECORDS) {
+                dropped.incrementAndGet();
+                return;
+            }
+            map((int) Math.min(MAX_RECORDS, (long) capacity * 2));
+        }
+        writeRecord(HEADER_BYTES + recordCount * RECORD_BYTES, score);
+        recordCount++;
+        addToTop(score);
+    }
+
+    private void map(int records) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) records * RECORD_BYTES);
+        capacity = records;
+    }
+
+    /**
+     * Inserts a score into the top list. Copy-on-write, so readers never see a half-sorted
+     * array; once the list is full, most scores are rejected by the first comparison.
+     */
+    private void addToTop(HighScore score) {
+        HighScore[] top = topScores;
+        if (top.length == TOP_K && !score.ranksAbove(top[TOP_K - 1])) return;
+
+        int index = top.length;
+        while (index > 0 && score.ranksAbove(top[index - 1])) index--;
+        HighScore[] updated = new HighScore[Math.min(TOP_K, top.length + 1)];
+        System.arraycopy(top, 0, updated, 0, index);
+        updated[index] = score;
+        System.arraycopy(top, index, updated, index + 1, updated.length - index - 1);
+        topScores = updated;
+    }
+
+    // --- Header and Recovery ---
+
+    private void writeCheckpoint() {
+        HighScore[] top = topScores;
+        int checksum = mix(recordCount, top.length);
+        for (int i = 0; i < top.length; i++) {
+            checksum = mix(checksum, writeRecord(HEADER_FIELDS_BYTES + i * RECORD_BYTES, top[i]));
+        }
+        buffer.putInt(8, recordCount);
+        buffer.putInt(12, top.length);
+        buffer.putInt(16, checksum);
+        buffer.force(); // Records and header reach the disk together; torn records fail their checksum
+        recordsSinceCheckpoint = 0;
+    }
+
+    private void recover() throws IOException {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a high-score log (version " + VERSION + ")");
+        }
+
+        // Start from the checkpoint if its header is intact, otherwise replay everything
+        int checkpoint = buffer.getInt(8);
+        int snapshotSize = buffer.getInt(12);
+        int start = 0;
+        if (checkpoint >= 0 && checkpoint <= capacity && snapshotSize >= 0 && snapshotSize <= TOP_K) {
+            HighScore[] snapshot = new HighScore[snapshotSize];
+            int checksum = mix(checkpoint, snapshotSize);
+            boolean valid = true;
+            for (int i = 0; i < snapshotSize && valid; i++) {
+                int offset = HEADER_FIELDS_BYTES + i * RECORD_BYTES;
+                snapshot[i] = readRecord(offset);
+                valid = snapshot[i] != null;
+                if (valid) checksum = mix(checksum, buffer.getInt(offset + RECORD_BYTES - 4));
+            }
+            if (valid && checksum == buffer.getInt(16)) {
+                topScores = snapshot;
+                start = checkpoint;
+            }
+        }
+
+        recordCount = start;
+        while (recordCount < capacity) {
+            HighScore score = readRecord(HEADER_BYTES + recordCount * RECORD_BYTES);
+            if (score == null) break; // Never written, or torn by a crash
+            recordCount++;
+            addToTop(score);
+        }
+    }
+
+    /**
+     * Writes one record and returns its checksum. The checksum goes last so a partly
+     * written record fails validation.
+     */
+    private int writeRecord(int offset, HighScore score) {
+        int checksum = checksum(score.getScore(), score.getLevel(), score.getTicks(),
+                                score.getSeed(), score.getTimestamp());
+        buffer.putInt(offset, score.getScore());
+        buffer.putInt(offset + 4, score.getLevel());
+        buffer.putInt(offset + 8, score.getTicks());
+        buffer.putLong(offset + 12, score.getSeed());
+        buffer.putLong(offset + 20, score.getTimestamp());
+        buffer.putInt(offset + 28, checksum);
+        return checksum;
+    }
+
+    /**
+     * Reads one record, or returns null if its checksum does not match.
+     */
+    private HighScore readRecord(int offset) {
+        int score = buffer.getInt(offset);
+        int level = buffer.getInt(offset + 4);
+        int ticks = buffer.getInt(offset + 8);
+        long seed = buffer.getLong(offset + 12);
+        long timestamp = buffer.getLong(offset + 20);
+        if (buffer.getInt(offset + 28) != checksum(score, level, ticks, seed, timestamp)) return null;
+        return new HighScore(score, level, ticks, seed, timestamp);
+    }
+
+    private static int checksum(int score, int level, int ticks, long seed, long timestamp) {
+        int hash = mix(MAGIC, score);
+        hash = mix(hash, level);
+        hash = mix(hash, ticks);
+        hash = mix(hash, (int) seed);
+        hash = mix(hash, (int) (seed >>> 32));
+        hash = mix(hash, (int) timestamp);
+        return mix(hash, (int) (timestamp >>> 32));
+    }
+
+    private static int mix(int hash, int value) {
+        int h = (hash ^ value) * 0x9E3779B1;
+        return h ^ (h >>> 15);
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * One game hosted by a SessionHost. While the player is active the session holds its
+ * GameEngine; while hibernated it only remembers the slot its state was written to.
+ * Any input wakes it up again.
+ */
+public class HostedSession {
+    private final SessionHost host;
+    private final int id;
+    private GameEngine engine;      // Null while hibernated
+    private int slot = -1;          // Slot in the host's file while hibernated
+    private long lastInputMillis;
+
+    HostedSession(SessionHost host, int id, GameEngine engine, long nowMillis) {
+        this.host = host;
+        this.id = id;
+        this.engine = engine;
+        this.lastInputMillis = nowMillis;
+    }
+
+    public int getId() { return id; }
+    public boolean isHibernated() { return engine == null; }
+    public long getLastInputMillis() { return lastInputMillis; }
+
+    /**
+     * Applies a direction key (W, A, S, D), waking the session if it is hibernated.
+     */
+    public void input(char move, long nowMillis) {
+        lastInputMillis = nowMillis;
+        getEngine().getPacMan().setDirection(move);
+    }
+
+    /**
+     * Returns the session's engine, waking the session if it is hibernated.
+     */
+    public GameEngine getEngine() {
+        if (engine == null) host.resume(this);
+        return engine;
+    }
+
+    /**
+     * Returns the engine without waking the session: null while it is hibernated.
+     */
+    GameEngine peekEngine() { return engine; }
+
+    int getSlot() { return slot; }
+
+    void hibernated(int slot) {
+        this.slot = slot;
+        this.engine = null;
+    }
+
+    void resumed(GameEngine engine) {
+        this.engine = engine;
+        this.slot = -1;
+    }
+}
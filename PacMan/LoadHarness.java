@@ -0,0 +1,189 @@
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Headless stress tool that ramps up concurrent GameEngine sessions, ghost counts and
+ * map sizes step by step, driving Pac-Man with random bot inputs. Each step records
+ * tick throughput, p99 tick latency and heap usage; a ramp stops at the first step
+ * that breaks the latency budget. Results are written as CSV.
+ *
+ * Usage: java LoadHarness [report.csv] [p99BudgetMicros] [threads]
+ */
+public class LoadHarness {
+    private static final int WARMUP_TICKS = 200;
+    private static final int MEASURED_TICKS = 500;
+    private static final int MAX_STEPS = 12;
+    private static final int MAX_MAP_TILES = 32; // 577x577 cells, keeps 64 sessions within a default heap
+
+    // Fixed values used while another dimension is being ramped
+    private static final int DEFAULT_SESSIONS = 64;
+    private static final int DEFAULT_GHOSTS = 2;
+    private static final int DEFAULT_MAP_SIZE = 19;
+    private static final int GHOST_RAMP_MAP_SIZE = 37; // Room for larger ghost counts
+
+    private static final char[] BOT_MOVES = {'W', 'A', 'S', 'D'};
+
+    private final long budgetNanos;
+    private final int threads;
+    private final ExecutorService pool;
+    private final PrintWriter report;
+
+    public LoadHarness(long budgetMicros, int threads, PrintWriter report) {
+        this.budgetNanos = budgetMicros * 1000L;
+        this.threads = threads;
+        this.pool = Executors.newFixedThreadPool(threads);
+        this.report = report;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String reportPath = args.length > 0 ? args[0] : "load_report.csv";
+        long budgetMicros = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        try (PrintWriter report = new PrintWriter(new FileWriter(reportPath))) {
+            LoadHarness harness = new LoadHarness(budgetMicros, threads, report);
+            try {
+                harness.run();
+            } finally {
+                harness.pool.shutdownNow();
+            }
+        }
+        System.out.println("Load report written to " + reportPath);
+    }
+
+    /**
+     * Runs the three ramps one after another: sessions, ghosts, then map size.
+     */
+    public void run() throws Exception {
+        report.println("ramp,step,sessions,ghosts,rows,cols,ticks,ticksPerSecond,p99Micros,heapUsedMB,withinBudget");
+
+        int sessions = 1;
+        for (int step = 0; step < MAX_STEPS; step++, sessions *= 2) {
+            if (!runStep("sessions", step, sessions, DEFAULT_GHOSTS, DEFAULT_MAP_SIZE)) break;
+        }
+
+        int ghosts = DEFAULT_GHOSTS;
+        int previousSpawned = 0;
+        for (int step = 0; step < MAX_STEPS; step++, ghosts *= 2) {
+            // Spawn points run out on a fixed map; more requested ghosts would add no load
+            int spawned = spawnedGhosts(ghosts, GHOST_RAMP_MAP_SIZE);
+            if (spawned <= previousSpawned) {
+                System.out.println("Ghost ramp stopped at " + previousSpawned + " ghosts: no free spawn points on a "
+                                   + GHOST_RAMP_MAP_SIZE + "x" + GHOST_RAMP_MAP_SIZE + " map");
+                break;
+            }
+            previousSpawned = spawned;
+            if (!runStep("ghosts", step, DEFAULT_SESSIONS, ghosts, GHOST_RAMP_MAP_SIZE)) break;
+        }
+
+        int tiles = 1;
+        for (int step = 0; step < MAX_STEPS && tiles <= MAX_MAP_TILES; step++, tiles *= 2) {
+            int size = tiles * (DEFAULT_MAP_SIZE - 1) + 1;
+            if (!runStep("mapSize", step, DEFAULT_SESSIONS, DEFAULT_GHOSTS, size)) break;
+        }
+    }
+
+    /**
+     * Number of ghosts a level-1 engine actually spawns; spawn points on walls or off the map are skipped.
+     */
+    private static int spawnedGhosts(int baseGhosts, int mapSize) {
+        return new GameEngine(mapSize, mapSize, baseGhosts).getGhosts().size();
+    }
+
+    /**
+     * Runs one configuration and appends its CSV row. The ghosts column is the number of
+     * ghosts actually on the map at level 1, not the requested base count.
+     * @return true if the step stayed within the p99 latency budget.
+     */
+    private boolean runStep(String ramp, int step, int sessions, int ghosts, int mapSize) throws Exception {
+        GameEngine[] engines = new GameEngine[sessions];
+        for (int i = 0; i < sessions; i++) {
+            engines[i] = new GameEngine(mapSize, mapSize, ghosts);
+            engines[i].startNewGame();
+        }
+        int spawnedGhosts = engines[0].getGhosts().size();
+
+        runTicks(engines, WARMUP_TICKS, false);
+        long start = System.nanoTime();
+        long[] latencies = runTicks(engines, MEASURED_TICKS, true);
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        long p99 = latencies[(int) Math.ceil(latencies.length * 0.99) - 1];
+        double ticksPerSecond = latencies.length * 1e9 / elapsed;
+
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        long heapUsed = runtime.totalMemory() - runtime.freeMemory();
+        boolean withinBudget = p99 <= budgetNanos;
+
+        report.printf("%s,%d,%d,%d,%d,%d,%d,%.0f,%d,%.1f,%b%n", ramp, step, sessions, spawnedGhosts, mapSize, mapSize,
+                      latencies.length, ticksPerSecond, p99 / 1000, heapUsed / (1024.0 * 1024.0), withinBudget);
+        report.flush();
+        // Keep the sessions reachable until after the heap measurement
+        Arrays.fill(engines, null);
+        return withinBudget;
+    }
+
+    /**
+     * Steps every engine for the given number of ticks, spreading sessions over the pool.
+     * @return Per-update latencies in nanoseconds when recording, otherwise an empty array.
+     */
+    private long[] runTicks(GameEngine[] engines, int ticks, boolean record) throws Exception {
+        int workers = Math.min(threads, engines.length);
+        List<Callable<long[]>> tasks = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            final int worker = w;
+            tasks.add(() -> driveSessions(engines, worker, workers, ticks, record));
+        }
+
+        List<long[]> results = new ArrayList<>(workers);
+        int total = 0;
+        for (Future<long[]> future : pool.invokeAll(tasks)) {
+            long[] result = future.get();
+            results.add(result);
+            total += result.length;
+        }
+
+        long[] merged = new long[total];
+        int offset = 0;
+        for (long[] result : results) {
+            System.arraycopy(result, 0, merged, offset, result.length);
+            offset += result.length;
+        }
+        return merged;
+    }
+
+    // Ticks every session with index worker, worker + stride, ... using random bot inputs
+    private static long[] driveSessions(GameEngine[] engines, int worker, int stride, int ticks, boolean record) {
+        Random bot = new Random(worker);
+        int owned = (engines.length - worker + stride - 1) / stride;
+        long[] latencies = new long[record ? owned * ticks : 0];
+        int sample = 0;
+
+        for (int t = 0; t < ticks; t++) {
+            for (int i = worker; i < engines.length; i += stride) {
+                GameEngine engine = engines[i];
+                if (engine.isGameOver() || engine.isVictory()) {
+                    engine.startNewGame();
+                }
+                engine.getPacMan().setDirection(BOT_MOVES[bot.nextInt(BOT_MOVES.length)]);
+
+                long tickStart = System.nanoTime();
+                engine.update();
+                if (record) {
+                    latencies[sample++] = System.nanoTime() - tickStart;
+                }
+            }
+        }
+        return latencies;
+    }
+}
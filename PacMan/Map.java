@@ -1,69 +1,65 @@
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
-
 /**
  * Manages the game grid, including walls, pellets, and power-ups.
+ * Walls and the starting layout live in a MazeTopology shared by every map of the same
+ * size; each Map only keeps a small mutable overlay of pellet and power-up bits.
  */
 public class Map {
-    // Map dimensions (19x19)
-    private static final int ROWS = 19;
-    private static final int COLS = 19;
+    // Default map dimensions (19x19)
+    private static final int DEFAULT_ROWS = 19;
+    private static final int DEFAULT_COLS = 19;
     public static final char WALL = '#';
     public static final char EMPTY = ' ';
     public static final char PELLET = '.';
     public static final char POWER_UP = 'I';
 
-    private final char[][] grid;
-    private final boolean[][] hasPellet;
+    // Bits of the packed per-cell state used by recordings (see getCellState)
+    public static final int STATE_PELLET = 1;
+    public static final int STATE_PELLET_SYMBOL = 2;
+    public static final int STATE_POWER_UP = 4;
+
+    private final MazeTopology topology;
+    private final int rows;
+    private final int cols;
+
+    // --- Per-Session Overlay (one bit per cell, index = row * cols + col) ---
+    private final long[] hasPellet;     // Pellet still uneaten
+    private final long[] pelletSymbols; // Cell currently shows PELLET
+    private final long[] powerUps;      // Cell currently shows POWER_UP
     private int pelletsRemaining;
-    private final Random random = new Random();
-
-    // --- INTERMEDIATE Maze Layout (More walls, still fully reachable) ---
-    private final int[][] obstacleLayout = {
-        // --- 1. Ghost House Structure (Center) ---
-        {8, 8}, {8, 10},
-        {9, 8}, {9, 10}, 
-        {10, 8}, {10, 10},
-
-        // --- 2. Horizontal Corridors (creating T-shapes and defined paths) ---
-        // Top half
-        {4, 2}, {4, 3}, {4, 4}, {4, 5}, {4, 6}, {4, 7}, 
-        {4, 11}, {4, 12}, {4, 13}, {4, 14}, {4, 15}, {4, 16},
-        {6, 4}, {6, 5}, {6, 13}, {6, 14},
-
-        // Bottom half
-        {14, 2}, {14, 3}, {14, 4}, {14, 5}, {14, 6}, {14, 7}, 
-        {14, 11}, {14, 12}, {14, 13}, {14, 14}, {14, 15}, {14, 16},
-        {12, 4}, {12, 5}, {12, 13}, {12, 14},
-        
-        // --- 3. Vertical Barriers (connecting horizontal segments) ---
-        // Outer segments
-        {2, 2}, {3, 2}, {5, 2},
-        {2, 16}, {3, 16}, {5, 16},
-        {13, 2}, {15, 2}, {16, 2},
-        {13, 16}, {15, 16}, {16, 16},
-
-        // Inner segments
-        {2, 7}, {3, 7}, {5, 7},
-        {2, 11}, {3, 11}, {5, 11},
-        {13, 7}, {15, 7}, {16, 7},
-        {13, 11}, {15, 11}, {16, 11},
-
-        // --- 4. Mid-level Blocks (blocking direct center cross) ---
-        {9, 4}, {9, 5},
-        {9, 13}, {9, 14},
-    };
+
+    // --- Change Tracking (only allocated while a StateDeltaRecorder is attached) ---
+    private int[] changedCells;   // Cells touched since the last clearChanges(), in touch order
+    private long[] changedBits;   // Dedupes changedCells
+    private int changedCount;
+    private boolean resetSinceClear;
+
+    // --- Spatial Indexes (built on first use, then kept current) ---
+    private PelletIndex pelletIndex;
+    private PelletIndex powerUpIndex;
 
     public Map() {
-        this.grid = new char[ROWS][COLS];
-        this.hasPellet = new boolean[ROWS][COLS];
+        this(DEFAULT_ROWS, DEFAULT_COLS);
+    }
+
+    /**
+     * Creates a map of the given size. The maze layout is tiled to fill maps larger
+     * than the default 19x19; sizes of the form 18 * n + 1 tile cleanly.
+     */
+    public Map(int rows, int cols) {
+        this.topology = MazeTopology.of(rows, cols);
+        this.rows = rows;
+        this.cols = cols;
+        int words = MazeTopology.wordsFor(rows * cols);
+        this.hasPellet = new long[words];
+        this.pelletSymbols = new long[words];
+        this.powerUps = new long[words];
         this.pelletsRemaining = 0;
     }
 
-    public int getRows() { return ROWS; }
-    public int getCols() { return COLS; }
+    public int getRows() { return rows; }
+    public int getCols() { return cols; }
     public int getPelletsRemaining() { return pelletsRemaining; }
+    public MazeTopology getTopology() { return topology; }
 
     /**
      * Resets the map grid for a new level/game, placing walls and pellets.
@@ -71,114 +67,190 @@ public class Map {
      * @param initialPacManCol Pac-Man's starting column to avoid placing items there.
      */
     public void reset(int initialPacManRow, int initialPacManCol) {
-        // --- 1. Fill the grid with pellets and reset pellet status ---
-        pelletsRemaining = 0;
-        for (int r = 0; r < ROWS; r++) {
-            for (int c = 0; c < COLS; c++) {
-                // Start by assuming every non-wall spot will be a pellet
-                grid[r][c] = PELLET;
-                hasPellet[r][c] = true;
-            }
-        }
-
-        // --- 2. Place outer walls ---
-        for (int c = 0; c < COLS; c++) {
-            grid[0][c] = WALL;
-            grid[ROWS - 1][c] = WALL;
-        }
-        for (int r = 0; r < ROWS; r++) {
-            grid[r][0] = WALL;
-            grid[r][COLS - 1] = WALL;
-        }
+        // --- 1. Restore the shared start-of-level layout ---
+        topology.copyInitialState(hasPellet, pelletSymbols, powerUps);
+        pelletsRemaining = topology.getInitialPelletCount();
+        resetSinceClear = true;
 
-        // Add a gap in the outer walls for a classic Pac-Man warp/hallway effect
-        grid[ROWS / 2][0] = EMPTY;
-        grid[ROWS / 2][COLS - 1] = EMPTY;
-
-        // --- 3. Place internal obstacles (maze walls) ---
-        for (int[] obs : obstacleLayout) {
-            int r = obs[0];
-            int c = obs[1];
-            if (r >= 0 && r < ROWS && c >= 0 && c < COLS) {
-                grid[r][c] = WALL;
-                hasPellet[r][c] = false; // Walls don't have pellets
-            }
-        }
-
-        // --- 4. Clear the space where Pac-Man starts and the Ghost house floor ---
-        if (initialPacManRow >= 0 && initialPacManRow < ROWS && initialPacManCol >= 0 && initialPacManCol < COLS) {
-            grid[initialPacManRow][initialPacManCol] = EMPTY;
-            hasPellet[initialPacManRow][initialPacManCol] = false;
-        }
-        
-        // Clear space for ghost start area (Ghost house floor at center 9, 9)
-        grid[ROWS / 2 - 1][COLS / 2] = EMPTY; // (8, 9)
-        hasPellet[ROWS / 2 - 1][COLS / 2] = false;
-        grid[ROWS / 2][COLS / 2] = EMPTY; // (9, 9)
-        hasPellet[ROWS / 2][COLS / 2] = false;
-        grid[ROWS / 2 + 1][COLS / 2] = EMPTY; // (10, 9)
-        hasPellet[ROWS / 2 + 1][COLS / 2] = false;
-
-
-        // --- 5. Calculate remaining pellets ---
-        pelletsRemaining = 0;
-        for (int r = 0; r < ROWS; r++) {
-            for (int c = 0; c < COLS; c++) {
-                if (grid[r][c] == PELLET) {
-                    pelletsRemaining++;
-                }
-            }
-        }
-
-        // --- 6. Place Power Ups (four corners of the playable maze) ---
-        placePowerUp(3, 1); // Top Left
-        placePowerUp(3, COLS - 2); // Top Right
-        placePowerUp(ROWS - 4, 1); // Bottom Left (15, 1)
-        placePowerUp(ROWS - 4, COLS - 2); // Bottom Right (15, 17)
-    }
-    
-    // Modified placePowerUp to place at a specific coordinate
-    private void placePowerUp(int r, int c) {
-        if (r >= 0 && r < ROWS && c >= 0 && c < COLS) {
-             // Only place if it's currently a pellet
-            if (grid[r][c] == PELLET) {
-                grid[r][c] = POWER_UP;
+        // --- 2. Clear the space where Pac-Man starts ---
+        if (topology.inBounds(initialPacManRow, initialPacManCol)
+                && !topology.isWall(initialPacManRow, initialPacManCol)) {
+            int cell = initialPacManRow * cols + initialPacManCol;
+            if (topology.isInitialPelletSymbol(cell) || topology.isInitialPowerUp(cell)) {
+                pelletsRemaining--; // Never counted when the start cell is cleared first
             }
+            MazeTopology.clear(hasPellet, cell);
+            MazeTopology.clear(pelletSymbols, cell);
+            MazeTopology.clear(powerUps, cell);
         }
+        rebuildIndexes();
     }
 
     public char getCell(int r, int c) {
-        if (r < 0 || r >= ROWS || c < 0 || c >= COLS) {
+        if (!topology.inBounds(r, c)) {
              // Check if it's the warp tunnel (center-left/right edge)
-             if (r == ROWS / 2 && (c == -1 || c == COLS)) return EMPTY;
+             if (topology.isWarp(r, c)) return EMPTY;
              return WALL; // Treat outside as a wall otherwise
         }
-        return grid[r][c];
+        int cell = r * cols + c;
+        if (topology.isWall(r, c)) return WALL;
+        if (MazeTopology.get(powerUps, cell)) return POWER_UP;
+        if (MazeTopology.get(pelletSymbols, cell)) return PELLET;
+        return EMPTY;
     }
 
+    /**
+     * Changes the symbol shown in a cell. Walls belong to the shared topology and
+     * cannot be added or removed here.
+     */
     public void setCell(int r, int c, char symbol) {
-        if (r >= 0 && r < ROWS && c >= 0 && c < COLS) {
-            grid[r][c] = symbol;
+        if (topology.inBounds(r, c) && !topology.isWall(r, c)) {
+            int cell = r * cols + c;
+            if (changedBits != null && getCell(r, c) != symbol) markChanged(cell);
+            boolean hadPowerUp = MazeTopology.get(powerUps, cell);
+            MazeTopology.clear(pelletSymbols, cell);
+            MazeTopology.clear(powerUps, cell);
+            if (symbol == PELLET) MazeTopology.set(pelletSymbols, cell);
+            else if (symbol == POWER_UP) MazeTopology.set(powerUps, cell);
+            if (powerUpIndex != null && hadPowerUp != (symbol == POWER_UP)) {
+                powerUpIndex.add(cell, hadPowerUp ? -1 : 1);
+            }
         }
     }
 
     public boolean isWall(int r, int c) {
-        // Special check for the warp tunnel: center rows outside the map are not walls
-        if (r == ROWS / 2 && (c == -1 || c == COLS)) return false; 
-        return getCell(r, c) == WALL;
+        return topology.isWall(r, c); // Outside the map is a wall, except the warp tunnel
     }
 
     public boolean hasPellet(int r, int c) {
-        if (r < 0 || r >= ROWS || c < 0 || c >= COLS) return false;
-        return hasPellet[r][c];
+        if (!topology.inBounds(r, c)) return false;
+        return MazeTopology.get(hasPellet, r * cols + c);
     }
 
     public void consumePellet(int r, int c) {
-        if (r >= 0 && r < ROWS && c >= 0 && c < COLS) {
-            if (hasPellet[r][c]) {
-                hasPellet[r][c] = false;
+        if (topology.inBounds(r, c)) {
+            int cell = r * cols + c;
+            if (MazeTopology.get(hasPellet, cell)) {
+                if (changedBits != null) markChanged(cell);
+                MazeTopology.clear(hasPellet, cell);
+                if (pelletIndex != null) pelletIndex.add(cell, -1);
                 pelletsRemaining--;
             }
         }
     }
-}
\ No newline at end of file
+
+    // --- State Access for Recording and Replay ---
+
+    /**
+     * Returns the STATE_* bits of a cell (index = row * cols + col).
+     */
+    public int getCellState(int cell) {
+        int state = 0;
+        if (MazeTopology.get(hasPellet, cell)) state |= STATE_PELLET;
+        if (MazeTopology.get(pelletSymbols, cell)) state |= STATE_PELLET_SYMBOL;
+        if (MazeTopology.get(powerUps, cell)) state |= STATE_POWER_UP;
+        return state;
+    }
+
+    public void setCellState(int cell, int state) {
+        if (changedBits != null) markChanged(cell);
+        int old = getCellState(cell);
+        if ((state & STATE_PELLET) != 0) MazeTopology.set(hasPellet, cell); else MazeTopology.clear(hasPellet, cell);
+        if ((state & STATE_PELLET_SYMBOL) != 0) MazeTopology.set(pelletSymbols, cell); else MazeTopology.clear(pelletSymbols, cell);
+        if ((state & STATE_POWER_UP) != 0) MazeTopology.set(powerUps, cell); else MazeTopology.clear(powerUps, cell);
+        if (pelletIndex != null && ((old ^ state) & STATE_PELLET) != 0) {
+            pelletIndex.add(cell, (state & STATE_PELLET) != 0 ? 1 : -1);
+        }
+        if (powerUpIndex != null && ((old ^ state) & STATE_POWER_UP) != 0) {
+            powerUpIndex.add(cell, (state & STATE_POWER_UP) != 0 ? 1 : -1);
+        }
+    }
+
+    /**
+     * Restores the shared start-of-level layout without clearing Pac-Man's start cell;
+     * recordings then apply their differences on top.
+     */
+    public void restoreInitialLayout() {
+        topology.copyInitialState(hasPellet, pelletSymbols, powerUps);
+        pelletsRemaining = topology.getInitialPelletCount();
+        resetSinceClear = true;
+        rebuildIndexes();
+    }
+
+    /**
+     * Returns the first cell at or after fromCell whose state differs from the
+     * start-of-level layout, or -1. Unchanged stretches are skipped 64 cells at a time.
+     */
+    public int nextChangedFromInitial(int fromCell) {
+        int cells = rows * cols;
+        if (fromCell >= cells) return -1;
+        int word = fromCell >>> 6;
+        long diff = topology.differenceFromInitial(word, hasPellet, pelletSymbols, powerUps) & (-1L << fromCell);
+        while (diff == 0) {
+            if (++word >= hasPellet.length) return -1;
+            diff = topology.differenceFromInitial(word, hasPellet, pelletSymbols, powerUps);
+        }
+        int cell = (word << 6) + Long.numberOfTrailingZeros(diff);
+        return cell < cells ? cell : -1;
+    }
+
+    // --- Spatial Queries ---
+
+    /**
+     * Returns the index of uneaten pellets (power-up cells included), building it on first use.
+     */
+    public PelletIndex getPelletIndex() {
+        if (pelletIndex == null) pelletIndex = new PelletIndex(hasPellet, rows, cols);
+        return pelletIndex;
+    }
+
+    /**
+     * Returns the index of power-ups still on the map, building it on first use.
+     */
+    public PelletIndex getPowerUpIndex() {
+        if (powerUpIndex == null) powerUpIndex = new PelletIndex(powerUps, rows, cols);
+        return powerUpIndex;
+    }
+
+    private void rebuildIndexes() {
+        if (pelletIndex != null) pelletIndex.rebuild();
+        if (powerUpIndex != null) powerUpIndex.rebuild();
+    }
+
+    public void setPelletsRemaining(int pelletsRemaining) {
+        this.pelletsRemaining = pelletsRemaining;
+    }
+
+    /**
+     * Starts recording which cells change, for per-tick delta encoding.
+     */
+    public void enableChangeTracking() {
+        if (changedBits == null) {
+            changedCells = new int[rows * cols];
+            changedBits = new long[MazeTopology.wordsFor(rows * cols)];
+        }
+    }
+
+    private void markChanged(int cell) {
+        if (!MazeTopology.get(changedBits, cell)) {
+            MazeTopology.set(changedBits, cell);
+            changedCells[changedCount++] = cell;
+        }
+    }
+
+    public int getChangedCount() { return changedCount; }
+    public int getChangedCell(int index) { return changedCells[index]; }
+
+    /**
+     * True if reset() ran since the last clearChanges(), meaning every cell may differ.
+     */
+    public boolean wasResetSinceClear() { return resetSinceClear; }
+
+    public void clearChanges() {
+        for (int i = 0; i < changedCount; i++) {
+            MazeTopology.clear(changedBits, changedCells[i]);
+        }
+        changedCount = 0;
+        resetSinceClear = false;
+    }
+}
@@ -0,0 +1,359 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Abstract graph over a MazeTopology for hierarchical pathfinding. The maze is cut into
+ * square clusters; every open crossing between two neighbouring clusters becomes a pair
+ * of entrance nodes, and the entrances of one cluster are linked by their walking
+ * distance inside it. The graph is immutable and shared like the topology itself, apart
+ * from a bounded cache of entrance distance fields that every pathfinder on it reuses.
+ */
+public final class MazeClusterGraph {
+    public static final int CLUSTER_SIZE = 16;
+    private static final int MAX_ENTRANCE_RUN = 6; // Longer openings get an entrance at each end
+    public static final int UNREACHABLE = Integer.MAX_VALUE / 4; // Field value of nodes with no path
+
+    // Entrance fields kept for all sessions together; a small map keeps every cluster's fields
+    private static final long FIELD_CACHE_BYTES = 32L << 20;
+    private static final int MIN_CACHED_FIELDS = 4;
+
+    // Builds missing fields for every graph, so no game tick waits for one
+    private static final ExecutorService FIELD_BUILDER = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "cluster-field-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Direction order matches GameEngine.DIRECTIONS and the MazeTopology exit bits
+    static final int[] DIR_ROW = {-1, 1, 0, 0};
+    static final int[] DIR_COL = {0, 0, -1, 1};
+
+    private final MazeTopology topology;
+    private final int clusterCols;
+    private final int clusterCount;
+
+    // --- Entrance Nodes ---
+    private final int[] nodeCell;         // Cell index of each node
+    private final int[] clusterNodeStart; // Nodes of cluster k are clusterNodes[start[k] .. start[k + 1])
+    private final int[] clusterNodes;
+
+    // --- Edges (compressed adjacency lists) ---
+    private final int[] edgeStart;
+    private final int[] edgeTarget;
+    private final int[] edgeCost;
+
+    // --- Entrance Distance Fields (built on demand, evicted by second chance) ---
+    private final AtomicReferenceArray<int[][]> fields; // Per cluster, null until built or once evicted
+    private final boolean[] fieldUsed;                  // Set by readers without locking; a lost write only delays eviction
+    private final AtomicIntegerArray fieldQueued;       // 1 while a cluster waits for FIELD_BUILDER
+    private int fieldHand = 0;                          // Eviction sweep position, guarded by this
+    private int cachedFields = 0;
+    private long cachedFieldBytes = 0;
+
+    MazeClusterGraph(MazeTopology topology) {
+        this.topology = topology;
+        int rows = topology.getRows();
+        int cols = topology.getCols();
+        this.clusterCols = (cols + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+        int clusterRows = (rows + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+        this.clusterCount = clusterRows * clusterCols;
+
+        // --- 1. Find entrances along every cluster border ---
+        HashMap<Integer, Integer> nodeByCell = new HashMap<>();
+        List<Integer> cells = new ArrayList<>();
+        List<List<int[]>> edges = new ArrayList<>();
+        for (int x = CLUSTER_SIZE; x < cols; x += CLUSTER_SIZE) {
+            // Vertical border between columns x - 1 and x
+            scanBorder(rows, x - 1, cols, 1, nodeByCell, cells, edges);
+        }
+        for (int y = CLUSTER_SIZE; y < rows; y += CLUSTER_SIZE) {
+            // Horizontal border between rows y - 1 and y
+            scanBorder(cols, (y - 1) * cols, 1, cols, nodeByCell, cells, edges);
+        }
+
+        int nodeCount = cells.size();
+        this.nodeCell = new int[nodeCount];
+        for (int n = 0; n < nodeCount; n++) nodeCell[n] = cells.get(n);
+
+        // --- 2. Group nodes by cluster ---
+        this.clusterNodeStart = new int[clusterCount + 1];
+        for (int n = 0; n < nodeCount; n++) clusterNodeStart[clusterOfCell(nodeCell[n]) + 1]++;
+        for (int k = 0; k < clusterCount; k++) clusterNodeStart[k + 1] += clusterNodeStart[k];
+        this.clusterNodes = new int[nodeCount];
+        int[] fill = clusterNodeStart.clone();
+        for (int n = 0; n < nodeCount; n++) clusterNodes[fill[clusterOfCell(nodeCell[n])]++] = n;
+
+        // --- 3. Link entrances of the same cluster by their in-cluster walking distance ---
+        int[] dist = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+        int[] queue = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+        for (int n = 0; n < nodeCount; n++) {
+            int cluster = clusterOfCell(nodeCell[n]);
+            clusterBfs(nodeCell[n], dist, queue);
+            for (int i = clusterNodeStart[cluster]; i < clusterNodeStart[cluster + 1]; i++) {
+                int other = clusterNodes[i];
+                int d = dist[localIndex(nodeCell[other])];
+                if (other != n && d >= 0) edges.get(n).add(new int[]{other, d});
+            }
+        }
+
+        // --- 4. Pack the edge lists ---
+        this.edgeStart = new int[nodeCount + 1];
+        for (int n = 0; n < nodeCount; n++) edgeStart[n + 1] = edgeStart[n] + edges.get(n).size();
+        this.edgeTarget = new int[edgeStart[nodeCount]];
+        this.edgeCost = new int[edgeStart[nodeCount]];
+        for (int n = 0; n < nodeCount; n++) {
+            int e = edgeStart[n];
+            for (int[] edge : edges.get(n)) {
+                edgeTarget[e] = edge[0];
+                edgeCost[e] = edge[1];
+                e++;
+            }
+        }
+
+        this.fields = new AtomicReferenceArray<>(clusterCount);
+        this.fieldUsed = new boolean[clusterCount];
+        this.fieldQueued = new AtomicIntegerArray(clusterCount);
+    }
+
+    // Walks one cluster border, adding an entrance pair for every run of open crossings.
+    // Border position i pairs cell first + i * step with the cell `cross` further on.
+    private void scanBorder(int length, int first, int step, int cross,
+                            HashMap<Integer, Integer> nodeByCell, List<Integer> cells, List<List<int[]>> edges) {
+        int runStart = -1;
+        for (int i = 0; i <= length; i++) {
+            int cell = first + i * step;
+            boolean open = i < length && isOpen(cell) && isOpen(cell + cross);
+            // Runs never span two clusters along the border
+            boolean split = i % CLUSTER_SIZE == 0 && runStart >= 0;
+            if ((!open || split) && runStart >= 0) {
+                int runEnd = i - 1;
+                if (runEnd - runStart + 1 > MAX_ENTRANCE_RUN) {
+                    int start = first + runStart * step;
+                    int end = first + runEnd * step;
+                    addEntrance(start, start + cross, nodeByCell, cells, edges);
+                    addEntrance(end, end + cross, nodeByCell, cells, edges);
+                } else {
+                    int mid = first + (runStart + runEnd) / 2 * step;
+                    addEntrance(mid, mid + cross, nodeByCell, cells, edges);
+                }
+                runStart = -1;
+            }
+            if (open && runStart < 0) runStart = i;
+        }
+    }
+
+    private static void addEntrance(int cellA, int cellB, HashMap<Integer, Integer> nodeByCell,
+                                    List<Integer> cells, List<List<int[]>> edges) {
+        int a = nodeFor(cellA, nodeByCell, cells, edges);
+        int b = nodeFor(cellB, nodeByCell, cells, edges);
+        edges.get(a).add(new int[]{b, 1});
+        edges.get(b).add(new int[]{a, 1});
+    }
+
+    private static int nodeFor(int cell, HashMap<Integer, Integer> nodeByCell, List<Integer> cells,
+                               List<List<int[]>> edges) {
+        Integer node = nodeByCell.get(cell);
+        if (node != null) return node;
+        nodeByCell.put(cell, cells.size());
+        cells.add(cell);
+        edges.add(new ArrayList<>());
+        return cells.size() - 1;
+    }
+
+    private boolean isOpen(int cell) {
+        int cols = topology.getCols();
+        return !topology.isWall(cell / cols, cell % cols);
+    }
+
+    // --- Queries ---
+
+    public int getNodeCount() { return nodeCell.length; }
+    public int getClusterCount() { return clusterCount; }
+    public int getEdgeCount() { return edgeTarget.length; }
+    public int nodeCell(int node) { return nodeCell[node]; }
+    public int clusterNodesStart(int cluster) { return clusterNodeStart[cluster]; }
+    public int clusterNodesEnd(int cluster) { return clusterNodeStart[cluster + 1]; }
+    public int clusterNode(int index) { return clusterNodes[index]; }
+    public int edgesStart(int node) { return edgeStart[node]; }
+    public int edgesEnd(int node) { return edgeStart[node + 1]; }
+    public int edgeTarget(int edge) { return edgeTarget[edge]; }
+    public int edgeCost(int edge) { return edgeCost[edge]; }
+
+    public int clusterOf(int r, int c) {
+        return (r / CLUSTER_SIZE) * clusterCols + c / CLUSTER_SIZE;
+    }
+
+    public int clusterOfCell(int cell) {
+        int cols = topology.getCols();
+        return clusterOf(cell / cols, cell % cols);
+    }
+
+    /**
+     * Position of a cell inside its cluster, used to index per-cluster scratch arrays.
+     */
+    public int localIndex(int cell) {
+        int cols = topology.getCols();
+        return (cell / cols % CLUSTER_SIZE) * CLUSTER_SIZE + cell % cols % CLUSTER_SIZE;
+    }
+
+    /**
+     * Breadth-first search from a cell that never leaves its cluster.
+     * @param dist  Receives the distance of every cluster cell by local index, -1 if unreachable.
+     * @param queue Scratch space of CLUSTER_SIZE * CLUSTER_SIZE entries.
+     */
+    public void clusterBfs(int startCell, int[] dist, int[] queue) {
+        int cols = topology.getCols();
+        int startRow = startCell / cols;
+        int startCol = startCell % cols;
+        int minRow = startRow - startRow % CLUSTER_SIZE;
+        int minCol = startCol - startCol % CLUSTER_SIZE;
+        int maxRow = Math.min(minRow + CLUSTER_SIZE, topology.getRows());
+        int maxCol = Math.min(minCol + CLUSTER_SIZE, cols);
+
+        Arrays.fill(dist, -1);
+        int head = 0;
+        int tail = 0;
+        dist[localIndex(startCell)] = 0;
+        queue[tail++] = startCell;
+        while (head < tail) {
+            int cell = queue[head++];
+            int r = cell / cols;
+            int c = cell % cols;
+            int exits = topology.getExits(r, c);
+            int next = dist[localIndex(cell)] + 1;
+            for (int d = 0; d < 4; d++) {
+                if ((exits & (1 << d)) == 0) continue;
+                int nr = r + DIR_ROW[d];
+                int nc = c + DIR_COL[d];
+                if (nr < minRow || nr >= maxRow || nc < minCol || nc >= maxCol) continue;
+                int neighbour = nr * cols + nc;
+                int local = localIndex(neighbour);
+                if (dist[local] < 0) {
+                    dist[local] = next;
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+    }
+
+    // --- Entrance Distance Fields ---
+
+    /**
+     * Distances over the abstract graph from each entrance of a cluster: entry k holds the
+     * distance from clusterNode(clusterNodesStart(cluster) + k) to every node, UNREACHABLE
+     * where there is no path. Shared by every caller until evicted; the arrays must not be
+     * modified. A miss returns null and queues the cluster for a background thread, as
+     * building runs a Dijkstra over the whole graph per entrance.
+     */
+    public int[][] entranceFields(int cluster) {
+        int[][] cached = fields.get(cluster);
+        if (cached != null) {
+            fieldUsed[cluster] = true;
+            return cached;
+        }
+        if (fieldQueued.compareAndSet(cluster, 0, 1)) {
+            FIELD_BUILDER.execute(() -> buildFields(cluster));
+        }
+        return null;
+    }
+
+    // Runs on FIELD_BUILDER
+    private void buildFields(int cluster) {
+        try {
+            long[] heap = new long[getEdgeCount() + 1];
+            int start = clusterNodeStart[cluster];
+            int[][] built = new int[clusterNodeStart[cluster + 1] - start][];
+            for (int k = 0; k < built.length; k++) {
+                built[k] = new int[getNodeCount()];
+                dijkstra(clusterNodes[start + k], built[k], heap);
+            }
+            cacheFields(cluster, built);
+        } finally {
+            fieldQueued.set(cluster, 0);
+        }
+    }
+
+    private synchronized void cacheFields(int cluster, int[][] built) {
+
+        long bytes = fieldBytes(built);
+        while (cachedFields >= MIN_CACHED_FIELDS && cachedFieldBytes + bytes > FIELD_CACHE_BYTES) {
+            int[][] resident = fields.get(fieldHand);
+            if (resident != null) {
+                if (fieldUsed[fieldHand]) {
+                    fieldUsed[fieldHand] = false; // Second chance
+                } else {
+                    fields.set(fieldHand, null);
+                    cachedFields--;
+                    cachedFieldBytes -= fieldBytes(resident);
+                }
+            }
+            fieldHand = (fieldHand + 1) % clusterCount;
+        }
+        fields.set(cluster, built);
+        fieldUsed[cluster] = true;
+        cachedFields++;
+        cachedFieldBytes += bytes;
+    }
+
+    private static long fieldBytes(int[][] field) {
+        return field.length == 0 ? 0 : (long) field.length * field[0].length * Integer.BYTES;
+    }
+
+    // Single-source shortest distances over the abstract graph (edges are symmetric)
+    private void dijkstra(int source, int[] dist, long[] heap) {
+        Arrays.fill(dist, UNREACHABLE);
+        dist[source] = 0;
+        int size = 0;
+        heap[size++] = (long) source; // Entries are (distance << 32 | node)
+        while (size > 0) {
+            long top = heap[0];
+            heap[0] = heap[--size];
+            siftDown(heap, size);
+            int node = (int) top;
+            int d = (int) (top >>> 32);
+            if (d > dist[node]) continue; // Stale entry
+
+            for (int e = edgeStart[node]; e < edgeStart[node + 1]; e++) {
+                int next = edgeTarget[e];
+                int nd = d + edgeCost[e];
+                if (nd < dist[next]) {
+                    dist[next] = nd;
+                    heap[size] = ((long) nd << 32) | next;
+                    siftUp(heap, size++);
+                }
+            }
+        }
+    }
+
+    static void siftUp(long[] heap, int i) {
+        long value = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= value) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = value;
+    }
+
+    static void siftDown(long[] heap, int size) {
+        if (size == 0) return;
+        long value = heap[0];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+            if (heap[child] >= value) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = value;
+    }
+}
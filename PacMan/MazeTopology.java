@@ -0,0 +1,313 @@
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+
+/**
+ * Immutable maze data for one map size: the wall layout, the starting pellet/power-up
+ * layout and derived navigation tables. A single instance is shared (flyweight) by every
+ * Map of the same size, so each session only stores its small mutable overlay.
+ * The cache holds topologies weakly. A topology, with its cluster graph, stays cached as
+ * long as anything references it strongly: every Map of that size, and a SessionHost for
+ * each size it hosts, so resuming hibernated sessions never rebuilds one. Once the last
+ * reference is gone the next garbage collection may clear it, and the entry is purged on
+ * a later of() call.
+ */
+public final class MazeTopology {
+    // Bits of the exits table, in the same order as the engine's movement directions
+    public static final int EXIT_UP = 1;
+    public static final int EXIT_DOWN = 2;
+    public static final int EXIT_LEFT = 4;
+    public static final int EXIT_RIGHT = 8;
+
+    // Larger maps repeat the obstacle layout every TILE_PERIOD cells
+    private static final int TILE_PERIOD = 18;
+
+    // Guarded by the class lock; cleared entries are purged through QUEUE on the next lookup
+    private static final HashMap<Long, CacheEntry> CACHE = new HashMap<>();
+    private static final ReferenceQueue<MazeTopology> QUEUE = new ReferenceQueue<>();
+
+    // --- INTERMEDIATE Maze Layout (More walls, still fully reachable) ---
+    private static final int[][] OBSTACLE_LAYOUT = {
+        // --- 1. Ghost House Structure (Center) ---
+        {8, 8}, {8, 10},
+        {9, 8}, {9, 10},
+        {10, 8}, {10, 10},
+
+        // --- 2. Horizontal Corridors (creating T-shapes and defined paths) ---
+        // Top half
+        {4, 2}, {4, 3}, {4, 4}, {4, 5}, {4, 6}, {4, 7},
+        {4, 11}, {4, 12}, {4, 13}, {4, 14}, {4, 15}, {4, 16},
+        {6, 4}, {6, 5}, {6, 13}, {6, 14},
+
+        // Bottom half
+        {14, 2}, {14, 3}, {14, 4}, {14, 5}, {14, 6}, {14, 7},
+        {14, 11}, {14, 12}, {14, 13}, {14, 14}, {14, 15}, {14, 16},
+        {12, 4}, {12, 5}, {12, 13}, {12, 14},
+
+        // --- 3. Vertical Barriers (connecting horizontal segments) ---
+        // Outer segments
+        {2, 2}, {3, 2}, {5, 2},
+        {2, 16}, {3, 16}, {5, 16},
+        {13, 2}, {15, 2}, {16, 2},
+        {13, 16}, {15, 16}, {16, 16},
+
+        // Inner segments
+        {2, 7}, {3, 7}, {5, 7},
+        {2, 11}, {3, 11}, {5, 11},
+        {13, 7}, {15, 7}, {16, 7},
+        {13, 11}, {15, 11}, {16, 11},
+
+        // --- 4. Mid-level Blocks (blocking direct center cross) ---
+        {9, 4}, {9, 5},
+        {9, 13}, {9, 14},
+    };
+
+    private final int rows;
+    private final int cols;
+    private final long[] walls;          // One bit per cell (index = row * cols + col)
+    private final long[] initialPellets; // hasPellet state at the start of a level
+    private final long[] initialPelletSymbols;
+    private final long[] initialPowerUps;
+    private final int initialPelletCount;
+    private final byte[] exits;          // EXIT_* mask of open neighbours per cell
+    private volatile MazeClusterGraph clusterGraph; // Built on first use by large-map pathfinding
+
+    /**
+     * Returns the shared topology for the given map size, building it if no live Map uses it.
+     */
+    public static synchronized MazeTopology of(int rows, int cols) {
+        if (rows < 3 || cols < 3) {
+            throw new IllegalArgumentException("Map must be at least 3x3, got " + rows + "x" + cols);
+        }
+        purgeCollected();
+        long key = ((long) rows << 32) | cols;
+        CacheEntry entry = CACHE.get(key);
+        MazeTopology topology = entry == null ? null : entry.get();
+        if (topology == null) {
+            topology = new MazeTopology(rows, cols);
+            CACHE.put(key, new CacheEntry(key, topology));
+        }
+        return topology;
+    }
+
+    private static void purgeCollected() {
+        CacheEntry cleared;
+        while ((cleared = (CacheEntry) QUEUE.poll()) != null) {
+            // A newer topology may already be stored under the same key
+            if (CACHE.get(cleared.key) == cleared) CACHE.remove(cleared.key);
+        }
+    }
+
+    private MazeTopology(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        int words = wordsFor(rows * cols);
+        this.walls = new long[words];
+        this.initialPellets = new long[words];
+        this.initialPelletSymbols = new long[words];
+        this.initialPowerUps = new long[words];
+
+        // Build the level layout on scratch arrays, then pack it into bit sets
+        char[][] grid = new char[rows][cols];
+        boolean[][] hasPellet = new boolean[rows][cols];
+        this.initialPelletCount = buildLayout(grid, hasPellet);
+
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int cell = r * cols + c;
+                if (grid[r][c] == Map.WALL) set(walls, cell);
+                if (grid[r][c] == Map.PELLET) set(initialPelletSymbols, cell);
+                if (grid[r][c] == Map.POWER_UP) set(initialPowerUps, cell);
+                if (hasPellet[r][c]) set(initialPellets, cell);
+            }
+        }
+
+        this.exits = new byte[rows * cols];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int mask = 0;
+                if (!isWall(r - 1, c)) mask |= EXIT_UP;
+                if (!isWall(r + 1, c)) mask |= EXIT_DOWN;
+                if (!isWall(r, c - 1)) mask |= EXIT_LEFT;
+                if (!isWall(r, c + 1)) mask |= EXIT_RIGHT;
+                exits[r * cols + c] = (byte) mask;
+            }
+        }
+    }
+
+    /**
+     * Places walls, pellets and power-ups for a fresh level. Pac-Man's own start cell is
+     * cleared per session by Map.reset.
+     * @return The number of pellets (power-ups included) Pac-Man has to eat.
+     */
+    private int buildLayout(char[][] grid, boolean[][] hasPellet) {
+        // --- 1. Fill the grid with pellets and reset pellet status ---
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                // Start by assuming every non-wall spot will be a pellet
+                grid[r][c] = Map.PELLET;
+                hasPellet[r][c] = true;
+            }
+        }
+
+        // --- 2. Place outer walls ---
+        for (int c = 0; c < cols; c++) {
+            grid[0][c] = Map.WALL;
+            grid[rows - 1][c] = Map.WALL;
+            hasPellet[0][c] = false;
+            hasPellet[rows - 1][c] = false;
+        }
+        for (int r = 0; r < rows; r++) {
+            grid[r][0] = Map.WALL;
+            grid[r][cols - 1] = Map.WALL;
+            hasPellet[r][0] = false;
+            hasPellet[r][cols - 1] = false;
+        }
+
+        // Add a gap in the outer walls for a classic Pac-Man warp/hallway effect (no pellets, like the walls)
+        grid[rows / 2][0] = Map.EMPTY;
+        grid[rows / 2][cols - 1] = Map.EMPTY;
+
+        // --- 3. Place internal obstacles (maze walls) ---
+        for (int tileRow = 0; tileRow < rows; tileRow += TILE_PERIOD) {
+            for (int tileCol = 0; tileCol < cols; tileCol += TILE_PERIOD) {
+                for (int[] obs : OBSTACLE_LAYOUT) {
+                    int r = tileRow + obs[0];
+                    int c = tileCol + obs[1];
+                    if (r >= 0 && r < rows && c >= 0 && c < cols) {
+                        grid[r][c] = Map.WALL;
+                        hasPellet[r][c] = false; // Walls don't have pellets
+                    }
+                }
+            }
+        }
+
+        // --- 4. Clear space for ghost start area (Ghost house floor at the center) ---
+        for (int r = rows / 2 - 1; r <= rows / 2 + 1; r++) {
+            grid[r][cols / 2] = Map.EMPTY;
+            hasPellet[r][cols / 2] = false;
+        }
+
+        // --- 5. Calculate remaining pellets ---
+        int pellets = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (grid[r][c] == Map.PELLET) {
+                    pellets++;
+                }
+            }
+        }
+
+        // --- 6. Place Power Ups (four corners of the playable maze) ---
+        placePowerUp(grid, 3, 1); // Top Left
+        placePowerUp(grid, 3, cols - 2); // Top Right
+        placePowerUp(grid, rows - 4, 1); // Bottom Left (15, 1)
+        placePowerUp(grid, rows - 4, cols - 2); // Bottom Right (15, 17)
+        return pellets;
+    }
+
+    private void placePowerUp(char[][] grid, int r, int c) {
+        if (r >= 0 && r < rows && c >= 0 && c < cols) {
+            // Only place if it's currently a pellet
+            if (grid[r][c] == Map.PELLET) {
+                grid[r][c] = Map.POWER_UP;
+            }
+        }
+    }
+
+    public int getRows() { return rows; }
+    public int getCols() { return cols; }
+    public int getInitialPelletCount() { return initialPelletCount; }
+
+    public boolean inBounds(int r, int c) {
+        return r >= 0 && r < rows && c >= 0 && c < cols;
+    }
+
+    /**
+     * True for the two cells just outside the side walls that make up the warp tunnel.
+     */
+    public boolean isWarp(int r, int c) {
+        return r == rows / 2 && (c == -1 || c == cols);
+    }
+
+    public boolean isWall(int r, int c) {
+        if (!inBounds(r, c)) return !isWarp(r, c); // Treat outside as a wall, except the warp tunnel
+        return get(walls, r * cols + c);
+    }
+
+    /**
+     * Returns the EXIT_* mask of non-wall neighbours of an in-bounds cell.
+     */
+    public int getExits(int r, int c) {
+        return exits[r * cols + c];
+    }
+
+    /**
+     * Returns the shared cluster graph used for hierarchical pathfinding, building it on first use.
+     */
+    public MazeClusterGraph getClusterGraph() {
+        MazeClusterGraph graph = clusterGraph;
+        if (graph == null) {
+            synchronized (this) {
+                graph = clusterGraph;
+                if (graph == null) {
+                    graph = new MazeClusterGraph(this);
+                    clusterGraph = graph;
+                }
+            }
+        }
+        return graph;
+    }
+
+    boolean isInitialPowerUp(int cell) { return get(initialPowerUps, cell); }
+    boolean isInitialPelletSymbol(int cell) { return get(initialPelletSymbols, cell); }
+
+    /**
+     * Copies the start-of-level overlay into a session's bit sets.
+     */
+    void copyInitialState(long[] pellets, long[] pelletSymbols, long[] powerUps) {
+        System.arraycopy(initialPellets, 0, pellets, 0, pellets.length);
+        System.arraycopy(initialPelletSymbols, 0, pelletSymbols, 0, pelletSymbols.length);
+        System.arraycopy(initialPowerUps, 0, powerUps, 0, powerUps.length);
+    }
+
+    /**
+     * Returns the bits of one 64-cell word where a session overlay differs from the
+     * start-of-level layout.
+     */
+    long differenceFromInitial(int word, long[] pellets, long[] pelletSymbols, long[] powerUps) {
+        return (pellets[word] ^ initialPellets[word])
+             | (pelletSymbols[word] ^ initialPelletSymbols[word])
+             | (powerUps[word] ^ initialPowerUps[word]);
+    }
+
+    // --- Bit Set Helpers (shared with Map's overlay) ---
+
+    static int wordsFor(int cells) {
+        return (cells + 63) >>> 6;
+    }
+
+    static boolean get(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    static void clear(long[] bits, int index) {
+        bits[index >>> 6] &= ~(1L << index);
+    }
+
+    /**
+     * Weak cache value that remembers its key, so a collected entry can be removed.
+     */
+    private static class CacheEntry extends WeakReference<MazeTopology> {
+        final long key;
+
+        CacheEntry(long key, MazeTopology topology) {
+            super(topology, QUEUE);
+            this.key = key;
+        }
+    }
+}
@@ -1,19 +1,73 @@
 import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.nio.file.Paths;
 
 /**
  * It initializes the game logic (GameEngine) and the graphical interface (GameFrame).
+ *
+ * Usage: java PacMan [--record game.pacrec]
+ * A recorded game can be rendered to images with FrameExporter.
  */
 public class PacMan {
+    private static final String HIGH_SCORE_FILE = "highscores.dat";
 
     public static void main(String[] args) {
+        // Open the high-score log before the UI so the first game is already recorded
+        HighScoreStore highScores = openHighScores();
+        GameRecordingWriter recording = args.length > 1 && args[0].equals("--record") ? openRecording(args[1]) : null;
+
         // Use SwingUtilities.invokeLater to ensure that all GUI-related code
         // is executed on the Event Dispatch Thread (EDT), which is mandatory for Swing applications.
         SwingUtilities.invokeLater(() -> {
             // 1. Initialize the core game logic
             GameEngine engine = new GameEngine();
+            if (highScores != null) highScores.listenTo(engine);
+            if (recording != null) recording.attachTo(engine);
 
             // 2. Create and display the main game window
-            new GameFrame("Pac-Man (W, A, S, D Controls)", engine);
+            new GameFrame("Pac-Man (W, A, S, D Controls)", engine, highScores);
         });
     }
-}
\ No newline at end of file
+
+    /**
+     * Opens the high-score log and closes it on exit. Returns null if the file can't be
+     * used; the game then runs without a leaderboard.
+     */
+    private static HighScoreStore openHighScores() {
+        try {
+            HighScoreStore store = new HighScoreStore(Paths.get(HIGH_SCORE_FILE));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    store.close();
+                } catch (IOException e) {
+                    System.err.println("Could not close " + HIGH_SCORE_FILE + ": " + e.getMessage());
+                }
+            }));
+            return store;
+        } catch (IOException e) {
+            System.err.println("High scores disabled, could not open " + HIGH_SCORE_FILE + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Opens a file to record the game into and closes it on exit. Returns null if the
+     * file can't be created.
+     */
+    private static GameRecordingWriter openRecording(String fileName) {
+        try {
+            GameRecordingWriter writer = new GameRecordingWriter(Paths.get(fileName));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    System.err.println("Recording " + fileName + " is incomplete: " + e.getMessage());
+                }
+            }));
+            return writer;
+        } catch (IOException e) {
+            System.err.println("Not recording, could not create " + fileName + ": " + e.getMessage());
+            return null;
+        }
+    }
+}
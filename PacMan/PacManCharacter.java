@@ -3,14 +3,21 @@
  */
 public class PacManCharacter extends GameObject {
     private static final int POWER_UP_DURATION = 10; // seconds
+    // Measured in game ticks so the timer stays deterministic for recordings and simulations
+    static final int POWER_UP_TICKS = (POWER_UP_DURATION * 1000 + GameEngine.TICK_MILLIS - 1) / GameEngine.TICK_MILLIS;
     private boolean powerUpActive = false;
-    private long powerUpStartTime = 0;
+    private int powerUpTicksLeft = 0;
     private int score = 0;
+    private GameEventBus eventBus; // Optional, receives pellet and power-up events
 
     public PacManCharacter(int initialRow, int initialCol) {
         super(initialRow, initialCol);
     }
 
+    public void setEventBus(GameEventBus eventBus) {
+        this.eventBus = eventBus;
+    }
+
     /**
      * Sets the desired movement direction (W, A, S, D).
      */
@@ -42,12 +49,14 @@ public class PacManCharacter extends GameObject {
             if (map.getCell(newRow, newCol) == Map.POWER_UP) {
                 activatePowerUp();
                 map.setCell(newRow, newCol, Map.EMPTY); // Consume power up
+                if (eventBus != null) eventBus.publish(GameEventType.POWER_UP_EATEN, newRow, newCol, 0);
             }
 
             // Check for Pellet
             if (map.hasPellet(newRow, newCol)) {
                 score++;
                 map.consumePellet(newRow, newCol);
+                if (eventBus != null) eventBus.publish(GameEventType.PELLET_EATEN, newRow, newCol, 1);
             }
 
             // Update position
@@ -62,15 +71,18 @@ public class PacManCharacter extends GameObject {
     public void activatePowerUp() {
         // Logic for power up activation is intentionally commented out/disabled
         this.powerUpActive = true; 
-        this.powerUpStartTime = System.currentTimeMillis(); 
+        this.powerUpTicksLeft = POWER_UP_TICKS;
     }
 
+    /**
+     * Counts down the power-up; called once per game tick.
+     */
     public void checkPowerUpTimer() {
         if (powerUpActive) {
-            long elapsedTime = (System.currentTimeMillis() - powerUpStartTime) / 1000; // time in seconds
-            if (elapsedTime >= POWER_UP_DURATION) {
+            powerUpTicksLeft--;
+            if (powerUpTicksLeft <= 0) {
                 powerUpActive = false;
-                powerUpStartTime = 0;
+                powerUpTicksLeft = 0;
             }
         }
     }
@@ -84,13 +96,23 @@ public class PacManCharacter extends GameObject {
         if (!powerUpActive) {
             return 0;
         }
-        long elapsedTime = (System.currentTimeMillis() - powerUpStartTime) / 1000;
-        int timeLeft = POWER_UP_DURATION - (int) elapsedTime;
-        return Math.max(0, timeLeft);
+        int timeLeft = (powerUpTicksLeft * GameEngine.TICK_MILLIS + 999) / 1000; // Round up to whole seconds
+        return Math.min(POWER_UP_DURATION, timeLeft);
+    }
+
+    public int getPowerUpTicksLeft() { return powerUpTicksLeft; }
+
+    /**
+     * Restores the power-up timer, e.g. when rebuilding state from a recording.
+     */
+    public void setPowerUpTicksLeft(int ticksLeft) {
+        this.powerUpTicksLeft = Math.max(0, ticksLeft);
+        this.powerUpActive = ticksLeft > 0;
     }
 
     public void increaseScore(int points) { score += points; }
     public int getScore() { return score; }
+    public void setScore(int score) { this.score = score; }
     
     // FIX: Added method to resolve compilation error in GameEngine.java
     public void resetScore() { this.score = 0; }
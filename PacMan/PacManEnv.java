@@ -0,0 +1,159 @@
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Reinforcement-learning style wrapper around one GameEngine: reset(seed) starts a
+ * reproducible game and step(action) advances it by one tick. Observations are written
+ * into a caller-supplied ByteBuffer (typically a direct buffer shared with the training
+ * framework), so stepping allocates nothing.
+ *
+ * An observation is PLANE_COUNT planes of rows * cols bytes, one byte per cell in row
+ * major order, starting at the given buffer index:
+ *   PLANE_WALLS      1 = wall
+ *   PLANE_PELLETS    1 = uneaten pellet
+ *   PLANE_POWER_UPS  1 = power-up
+ *   PLANE_GHOSTS     number of ghosts on the cell, +GHOST_FRIGHTENED if they can be eaten
+ *   PLANE_PACMAN     1 = Pac-Man
+ * Ghosts in the warp tunnel, just outside the map, are not shown.
+ */
+public class PacManEnv {
+    // --- Actions (the direction key pressed for the tick) ---
+    public static final int ACTION_NONE = 0;
+    public static final int ACTION_UP = 1;
+    public static final int ACTION_DOWN = 2;
+    public static final int ACTION_LEFT = 3;
+    public static final int ACTION_RIGHT = 4;
+    public static final int ACTION_COUNT = 5;
+    private static final char[] ACTION_KEYS = {' ', 'W', 'S', 'A', 'D'};
+
+    // --- Observation Planes ---
+    public static final int PLANE_WALLS = 0;
+    public static final int PLANE_PELLETS = 1;
+    public static final int PLANE_POWER_UPS = 2;
+    public static final int PLANE_GHOSTS = 3;
+    public static final int PLANE_PACMAN = 4;
+    public static final int PLANE_COUNT = 5;
+    public static final int GHOST_FRIGHTENED = 0x40;
+
+    private final GameEngine engine;
+    private final int rows;
+    private final int cols;
+    private final int planeSize;
+    private final byte[] wallPlane; // Never changes, copied in bulk
+
+    private int lastScore = 0;
+
+    public PacManEnv() {
+        this(19, 19, 2);
+    }
+
+    public PacManEnv(int rows, int cols, int baseGhosts) {
+        this.engine = new GameEngine(rows, cols, baseGhosts);
+        this.rows = rows;
+        this.cols = cols;
+        this.planeSize = rows * cols;
+
+        MazeTopology topology = engine.getMap().getTopology();
+        this.wallPlane = new byte[planeSize];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (topology.isWall(r, c)) wallPlane[r * cols + c] = 1;
+            }
+        }
+    }
+
+    /**
+     * Bytes needed for one observation.
+     */
+    public int getObservationSize() { return PLANE_COUNT * planeSize; }
+
+    public int getRows() { return rows; }
+    public int getCols() { return cols; }
+    public GameEngine getEngine() { return engine; }
+
+    /**
+     * Starts a new game from level 1 with the given seed and writes its first observation.
+     * Nothing carries over from the previous episode, so a seed always gives the same game.
+     */
+    public void reset(long seed, ByteBuffer observation, int index) {
+        engine.quitGame(); // startNewGame() only resets level and score after a finished game
+        engine.setSeed(seed);
+        engine.startNewGame();
+        // startNewGame() keeps Pac-Man's power-up and a direction set on the final tick
+        PacManCharacter pacMan = engine.getPacMan();
+        pacMan.setPowerUpTicksLeft(0);
+        pacMan.setDirection(ACTION_KEYS[ACTION_NONE]);
+        lastScore = 0;
+        writeObservation(observation, index);
+    }
+
+    /**
+     * Applies an action for one tick and writes the resulting observation.
+     * @return The reward: points scored during the tick.
+     */
+    public float step(int action, ByteBuffer observation, int index) {
+        if (action < 0 || action >= ACTION_COUNT) {
+            throw new IllegalArgumentException("Unknown action " + action);
+        }
+        engine.getPacMan().setDirection(ACTION_KEYS[action]);
+        engine.update();
+
+        int score = engine.getPacMan().getScore();
+        float reward = score - lastScore;
+        lastScore = score;
+        writeObservation(observation, index);
+        return reward;
+    }
+
+    /**
+     * True once the game has ended (Pac-Man caught or all levels cleared); call reset() next.
+     */
+    public boolean isDone() {
+        return engine.isGameOver() || engine.isVictory();
+    }
+
+    /**
+     * Writes the current observation at the given buffer index using absolute puts,
+     * leaving the buffer's position untouched.
+     */
+    public void writeObservation(ByteBuffer out, int index) {
+        if (index < 0 || index + getObservationSize() > out.limit()) {
+            throw new IllegalArgumentException("Observation of " + getObservationSize()
+                + " bytes does not fit at index " + index);
+        }
+        out.put(index + PLANE_WALLS * planeSize, wallPlane, 0, planeSize);
+
+        // Pellets and power-ups come from the map's state bits; entity planes are cleared
+        Map map = engine.getMap();
+        int pellets = index + PLANE_PELLETS * planeSize;
+        int powerUps = index + PLANE_POWER_UPS * planeSize;
+        int ghostPlane = index + PLANE_GHOSTS * planeSize;
+        int pacManPlane = index + PLANE_PACMAN * planeSize;
+        for (int cell = 0; cell < planeSize; cell++) {
+            int state = map.getCellState(cell);
+            out.put(pellets + cell, (byte) (wallPlane[cell] == 0 ? state & Map.STATE_PELLET : 0));
+            out.put(powerUps + cell, (byte) ((state & Map.STATE_POWER_UP) != 0 ? 1 : 0));
+            out.put(ghostPlane + cell, (byte) 0);
+            out.put(pacManPlane + cell, (byte) 0);
+        }
+
+        // Entities
+        int frightened = engine.getPacMan().isPowerUpActive() ? GHOST_FRIGHTENED : 0;
+        List<Ghost> ghosts = engine.getGhosts();
+        for (int i = 0; i < ghosts.size(); i++) {
+            Ghost ghost = ghosts.get(i);
+            if (!inMap(ghost.getRow(), ghost.getCol())) continue;
+            int at = ghostPlane + ghost.getRow() * cols + ghost.getCol();
+            int count = Math.min(GHOST_FRIGHTENED - 1, (out.get(at) & (GHOST_FRIGHTENED - 1)) + 1);
+            out.put(at, (byte) (count | frightened));
+        }
+        PacManCharacter pacMan = engine.getPacMan();
+        if (inMap(pacMan.getRow(), pacMan.getCol())) {
+            out.put(pacManPlane + pacMan.getRow() * cols + pacMan.getCol(), (byte) 1);
+        }
+    }
+
+    private boolean inMap(int row, int col) {
+        return row >= 0 && row < rows && col >= 0 && col < cols;
+    }
+}
@@ -0,0 +1,170 @@
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Steps many PacManEnv instances per call, spread over a fixed set of worker threads.
+ * Environment i writes its observation at i * getObservationSize() in one shared buffer,
+ * its reward to rewards[i] and its end-of-game flag to dones[i]. A finished environment
+ * is reset automatically with its next seed (see reset()), so the observation written for it is
+ * already the first one of its new game.
+ *
+ * Each worker owns the environments worker, worker + threads, ..., so no two threads
+ * write the same part of the buffer. The calling thread is worker 0; the others are
+ * started once and wait between calls, woken by a step generation counter and parking,
+ * so a call allocates nothing. Environments are stepped by one call at a time.
+ */
+public class PacManVectorEnv implements AutoCloseable {
+    private final PacManEnv[] envs;
+    private final int observationSize;
+    private final int workers;
+    private final Thread[] helpers;   // Workers 1 .. workers - 1
+    private final int[] episodes; // Games started per environment since reset()
+    private long baseSeed;
+
+    // --- Step Handoff ---
+    private volatile int generation = 0;    // Bumped once per call; its write publishes the arguments
+    private volatile Thread caller;         // Parked until every helper is done
+    private final AtomicInteger running = new AtomicInteger(); // Helpers still stepping this call
+    private volatile Throwable failure;
+    private volatile boolean closed = false;
+
+    // --- Arguments of the call in progress ---
+    private int[] actions;
+    private ByteBuffer observations;
+    private float[] rewards;
+    private boolean[] dones;
+
+    public PacManVectorEnv(int count, int rows, int cols, int baseGhosts, int threads) {
+        if (count <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("Need at least one environment and one thread");
+        }
+        this.envs = new PacManEnv[count];
+        for (int i = 0; i < count; i++) {
+            envs[i] = new PacManEnv(rows, cols, baseGhosts);
+        }
+        this.observationSize = envs[0].getObservationSize();
+        this.episodes = new int[count];
+
+        this.workers = Math.min(threads, count);
+        this.helpers = new Thread[workers - 1];
+        for (int w = 1; w < workers; w++) {
+            final int worker = w;
+            Thread helper = new Thread(() -> runHelper(worker), "vector-env-worker-" + w);
+            helper.setDaemon(true);
+            helpers[w - 1] = helper;
+            helper.start();
+        }
+    }
+
+    public int getCount() { return envs.length; }
+    public int getObservationSize() { return observationSize; }
+    public PacManEnv getEnv(int index) { return envs[index]; }
+
+    /**
+     * Bytes needed for the observations of all environments.
+     */
+    public int getBatchObservationSize() { return envs.length * observationSize; }
+
+    /**
+     * Resets every environment and writes its first observation. Game n of environment i
+     * (counting from 0) uses seed baseSeed + i + n * count, so runs are reproducible
+     * whatever the thread count.
+     */
+    public void reset(long baseSeed, ByteBuffer observations) {
+        checkCapacity(observations);
+        this.baseSeed = baseSeed;
+        for (int i = 0; i < envs.length; i++) {
+            episodes[i] = 0;
+            envs[i].reset(seedFor(i), observations, i * observationSize);
+        }
+    }
+
+    /**
+     * Applies one action per environment and writes observations, rewards and done flags.
+     */
+    public void step(int[] actions, ByteBuffer observations, float[] rewards, boolean[] dones) {
+        if (actions.length < envs.length || rewards.length < envs.length || dones.length < envs.length) {
+            throw new IllegalArgumentException("Arrays must hold " + envs.length + " entries");
+        }
+        checkCapacity(observations);
+        this.actions = actions;
+        this.observations = observations;
+        this.rewards = rewards;
+        this.dones = dones;
+
+        if (helpers.length == 0) {
+            stepRange(0, 1);
+            return;
+        }
+        if (closed) throw new IllegalStateException("Environments are closed");
+
+        caller = Thread.currentThread();
+        failure = null;
+        running.set(helpers.length);
+        generation++; // Only this thread writes it
+        for (Thread helper : helpers) {
+            LockSupport.unpark(helper);
+        }
+        try {
+            stepRange(0, workers);
+        } catch (RuntimeException | Error e) {
+            failure = e;
+        }
+        while (running.get() > 0) {
+            LockSupport.park(this);
+        }
+        Throwable failed = failure;
+        if (failed != null) throw new IllegalStateException("Environment step failed", failed);
+    }
+
+    // Steps this worker's share once per generation until close()
+    private void runHelper(int worker) {
+        int seen = 0;
+        while (!closed) {
+            int current = generation;
+            if (current == seen) {
+                LockSupport.park(this);
+                continue;
+            }
+            seen = current;
+            try {
+                stepRange(worker, workers);
+            } catch (RuntimeException | Error e) {
+                failure = e;
+            }
+            if (running.decrementAndGet() == 0) LockSupport.unpark(caller);
+        }
+    }
+
+    private void stepRange(int worker, int stride) {
+        for (int i = worker; i < envs.length; i += stride) {
+            PacManEnv env = envs[i];
+            int index = i * observationSize;
+            rewards[i] = env.step(actions[i], observations, index);
+            dones[i] = env.isDone();
+            if (dones[i]) {
+                episodes[i]++;
+                env.reset(seedFor(i), observations, index);
+            }
+        }
+    }
+
+    private long seedFor(int env) {
+        return baseSeed + env + (long) episodes[env] * envs.length;
+    }
+
+    private void checkCapacity(ByteBuffer observations) {
+        if (observations.limit() < getBatchObservationSize()) {
+            throw new IllegalArgumentException("Observation buffer needs " + getBatchObservationSize() + " bytes");
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (Thread helper : helpers) {
+            LockSupport.unpark(helper);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+import java.util.Arrays;
+
+/**
+ * Spatial index over one of a Map's per-cell bit sets (uneaten pellets or power-ups).
+ * Cells are grouped into BLOCK x BLOCK leaf blocks; a quadtree of counts sits on top,
+ * each level summing 2 x 2 nodes of the level below up to a single root. The Map keeps
+ * it current: an eaten pellet costs one counter update per level.
+ *
+ * count() adds whole nodes that lie inside the region and only popcounts the cells of
+ * leaf blocks cut by its border. nearest() is a branch-and-bound search that skips
+ * empty nodes and nodes farther away than the best cell found so far, so on large maps
+ * it looks at a handful of blocks instead of the whole grid. Distances are Manhattan
+ * distances on the grid; walls and the warp tunnel are not taken into account.
+ */
+public class PelletIndex {
+    private static final int BLOCK_SHIFT = 3;
+    private static final int BLOCK = 1 << BLOCK_SHIFT; // 8 x 8 cells per leaf block
+
+    private final long[] bits; // The Map's bit set, shared
+    private final int rows;
+    private final int cols;
+
+    // --- Count Quadtree (level 0 = leaf blocks, last level = root) ---
+    private final int levels;
+    private final int[] levelRows;
+    private final int[] levelCols;
+    private final int[][] counts;
+    private final int[] stack; // (level, row, col) triples pending in nearest()
+
+    PelletIndex(long[] bits, int rows, int cols) {
+        this.bits = bits;
+        this.rows = rows;
+        this.cols = cols;
+
+        int levelCount = 1;
+        int r = (rows + BLOCK - 1) >> BLOCK_SHIFT;
+        int c = (cols + BLOCK - 1) >> BLOCK_SHIFT;
+        while (r > 1 || c > 1) {
+            r = (r + 1) >> 1;
+            c = (c + 1) >> 1;
+            levelCount++;
+        }
+        this.levels = levelCount;
+        this.levelRows = new int[levels];
+        this.levelCols = new int[levels];
+        this.counts = new int[levels][];
+        r = (rows + BLOCK - 1) >> BLOCK_SHIFT;
+        c = (cols + BLOCK - 1) >> BLOCK_SHIFT;
+        for (int level = 0; level < levels; level++) {
+            levelRows[level] = r;
+            levelCols[level] = c;
+            counts[level] = new int[r * c];
+            r = (r + 1) >> 1;
+            c = (c + 1) >> 1;
+        }
+        this.stack = new int[3 * 4 * levels];
+        rebuild();
+    }
+
+    /**
+     * Recounts everything from the bit set, after the Map replaced it wholesale.
+     */
+    void rebuild() {
+        int[] leaves = counts[0];
+        for (int block = 0; block < leaves.length; block++) {
+            int top = (block / levelCols[0]) << BLOCK_SHIFT;
+            int left = (block % levelCols[0]) << BLOCK_SHIFT;
+            leaves[block] = countCells(top, left, Math.min(rows, top + BLOCK) - 1, Math.min(cols, left + BLOCK) - 1);
+        }
+        for (int level = 1; level < levels; level++) {
+            int[] parents = counts[level];
+            int[] children = counts[level - 1];
+            Arrays.fill(parents, 0);
+            for (int child = 0; child < children.length; child++) {
+                int row = (child / levelCols[level - 1]) >> 1;
+                int col = (child % levelCols[level - 1]) >> 1;
+                parents[row * levelCols[level] + col] += children[child];
+            }
+        }
+    }
+
+    /**
+     * Records that a cell's bit was set (+1) or cleared (-1).
+     */
+    void add(int cell, int delta) {
+        int blockRow = (cell / cols) >> BLOCK_SHIFT;
+        int blockCol = (cell % cols) >> BLOCK_SHIFT;
+        for (int level = 0; level < levels; level++) {
+            counts[level][(blockRow >> level) * levelCols[level] + (blockCol >> level)] += delta;
+        }
+    }
+
+    public int getTotal() {
+        return counts[levels - 1][0];
+    }
+
+    /**
+     * Counts the set cells in the rectangle from (top, left) to (bottom, right), inclusive.
+     */
+    public int count(int top, int left, int bottom, int right) {
+        top = Math.max(0, top);
+        left = Math.max(0, left);
+        bottom = Math.min(rows - 1, bottom);
+        right = Math.min(cols - 1, right);
+        if (top > bottom || left > right) return 0;
+        return countNode(levels - 1, 0, 0, top, left, bottom, right);
+    }
+
+    private int countNode(int level, int nodeRow, int nodeCol, int top, int left, int bottom, int right) {
+        int shift = level + BLOCK_SHIFT;
+        int nodeTop = nodeRow << shift;
+        int nodeLeft = nodeCol << shift;
+        int nodeBottom = Math.min(rows, (nodeRow + 1) << shift) - 1;
+        int nodeRight = Math.min(cols, (nodeCol + 1) << shift) - 1;
+        if (nodeTop > bottom || nodeBottom < top || nodeLeft > right || nodeRight < left) return 0;
+
+        int count = counts[level][nodeRow * levelCols[level] + nodeCol];
+        if (count == 0) return 0;
+        if (nodeTop >= top && nodeBottom <= bottom && nodeLeft >= left && nodeRight <= right) return count;
+        if (level == 0) {
+            return countCells(Math.max(top, nodeTop), Math.max(left, nodeLeft),
+                              Math.min(bottom, nodeBottom), Math.min(right, nodeRight));
+        }
+
+        int total = 0;
+        for (int r = nodeRow * 2; r <= nodeRow * 2 + 1 && r < levelRows[level - 1]; r++) {
+            for (int c = nodeCol * 2; c <= nodeCol * 2 + 1 && c < levelCols[level - 1]; c++) {
+                total += countNode(level - 1, r, c, top, left, bottom, right);
+            }
+        }
+        return total;
+    }
+
+    private int countCells(int top, int left, int bottom, int right) {
+        int count = 0;
+        for (int r = top; r <= bottom; r++) {
+            int from = r * cols + left;
+            int to = r * cols + right;
+            int fromWord = from >>> 6;
+            int toWord = to >>> 6;
+            long last = -1L >>> (63 - (to & 63));
+            if (fromWord == toWord) {
+                count += Long.bitCount(bits[fromWord] & (-1L << from) & last);
+            } else {
+                count += Long.bitCount(bits[fromWord] & (-1L << from));
+                for (int w = fromWord + 1; w < toWord; w++) count += Long.bitCount(bits[w]);
+                count += Long.bitCount(bits[toWord] & last);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the set cell (index = row * cols + col) closest to the given position, or
+     * -1 if there is none.
+     */
+    public int nearest(int row, int col) {
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        int size = push(0, levels - 1, 0, 0);
+        while (size > 0) {
+            size -= 3;
+            int level = stack[size];
+            int nodeRow = stack[size + 1];
+            int nodeCol = stack[size + 2];
+            if (distanceToNode(row, col, level, nodeRow, nodeCol) >= bestDistance) continue;
+
+            if (level == 0) {
+                // Scan the block's cells
+                int top = nodeRow << BLOCK_SHIFT;
+                int left = nodeCol << BLOCK_SHIFT;
+                int right = Math.min(cols, left + BLOCK) - 1;
+                for (int r = top; r < Math.min(rows, top + BLOCK); r++) {
+                    for (int c = left; c <= right; c++) {
+                        int cell = r * cols + c;
+                        if ((bits[cell >>> 6] & (1L << cell)) == 0) continue;
+                        int distance = Math.abs(r - row) + Math.abs(c - col);
+                        if (distance < bestDistance) {
+                            bestDistance = distance;
+                            best = cell;
+                        }
+                    }
+                }
+                continue;
+            }
+
+            // Push the non-empty children farthest first, so the nearest is searched first
+            int child = level - 1;
+            int first = size;
+            for (int r = nodeRow * 2; r <= nodeRow * 2 + 1 && r < levelRows[child]; r++) {
+                for (int c = nodeCol * 2; c <= nodeCol * 2 + 1 && c < levelCols[child]; c++) {
+                    if (counts[child][r * levelCols[child] + c] == 0) continue;
+                    size = push(size, child, r, c);
+                    // Insertion sort by descending distance among this node's children
+                    for (int i = size - 3; i > first; i -= 3) {
+                        int current = distanceToNode(row, col, child, stack[i + 1], stack[i + 2]);
+                        int previous = distanceToNode(row, col, child, stack[i - 2], stack[i - 1]);
+                        if (current <= previous) break;
+                        swap(i, i - 3);
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private int push(int size, int level, int row, int col) {
+        stack[size] = level;
+        stack[size + 1] = row;
+        stack[size + 2] = col;
+        return size + 3;
+    }
+
+    private void swap(int a, int b) {
+        for (int i = 0; i < 3; i++) {
+            int value = stack[a + i];
+            stack[a + i] = stack[b + i];
+            stack[b + i] = value;
+        }
+    }
+
+    private int distanceToNode(int row, int col, int level, int nodeRow, int nodeCol) {
+        int shift = level + BLOCK_SHIFT;
+        int top = nodeRow << shift;
+        int left = nodeCol << shift;
+        int bottom = Math.min(rows, (nodeRow + 1) << shift) - 1;
+        int right = Math.min(cols, (nodeCol + 1) << shift) - 1;
+        int rowDistance = row < top ? top - row : (row > bottom ? row - bottom : 0);
+        int colDistance = col < left ? left - col : (col > right ? col - right : 0);
+        return rowDistance + colDistance;
+    }
+}
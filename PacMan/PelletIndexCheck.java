@@ -0,0 +1,110 @@
+import java.util.Random;
+
+/**
+ * Consistency check for the Map's pellet index. On several map sizes it eats pellets in
+ * random order and, after every few pellets, verifies that:
+ *   - the index total equals getPelletsRemaining()
+ *   - count() over the whole map and over the outer wall agrees with a cell-by-cell scan
+ *   - nearest() returns an uneaten pellet, never a wall, at the brute-force minimum distance
+ * Exits with status 1 on the first mismatch, so a build script can fail on it.
+ *
+ * Usage: java PelletIndexCheck [seed]
+ */
+public class PelletIndexCheck {
+    private static final int[][] MAP_SIZES = {{19, 19}, {37, 37}, {23, 61}, {145, 91}};
+    private static final int CHECK_EVERY = 7; // Pellets eaten between full checks
+    private static final int QUERIES = 40;    // nearest() probes per check
+
+    private final Random random;
+    private int checks = 0;
+
+    public PelletIndexCheck(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 1;
+        PelletIndexCheck check = new PelletIndexCheck(seed);
+        try {
+            for (int[] size : MAP_SIZES) {
+                check.run(size[0], size[1]);
+            }
+        } catch (IllegalStateException e) {
+            System.out.println("FAILED: " + e.getMessage());
+            System.exit(1);
+        }
+        System.out.println("Pellet index OK (" + check.checks + " checks)");
+    }
+
+    private void run(int rows, int cols) {
+        GameEngine engine = new GameEngine(rows, cols, 2);
+        engine.startNewGame();
+        Map map = engine.getMap();
+        PelletIndex index = map.getPelletIndex();
+
+        verify(map, index);
+        int eaten = 0;
+        while (map.getPelletsRemaining() > 0) {
+            int r = random.nextInt(rows);
+            int c = random.nextInt(cols);
+            if (!map.hasPellet(r, c)) continue;
+            map.consumePellet(r, c);
+            if (++eaten % CHECK_EVERY == 0) verify(map, index);
+        }
+        verify(map, index);
+
+        // A new level rebuilds the index from the restored layout
+        engine.startNewGame();
+        verify(map, index);
+    }
+
+    private void verify(Map map, PelletIndex index) {
+        checks++;
+        int rows = map.getRows();
+        int cols = map.getCols();
+        String where = rows + "x" + cols + " with " + map.getPelletsRemaining() + " pellets left: ";
+
+        expect(index.getTotal() == map.getPelletsRemaining(),
+               where + "index total " + index.getTotal() + " != pelletsRemaining");
+        expect(index.count(0, 0, rows - 1, cols - 1) == map.getPelletsRemaining(), where + "count(whole map)");
+        expect(index.count(0, 0, 0, cols - 1) == 0, where + "pellets counted in the top wall");
+        expect(index.count(rows - 1, 0, rows - 1, cols - 1) == 0, where + "pellets counted in the bottom wall");
+        expect(index.count(0, 0, rows - 1, 0) == 0, where + "pellets counted in the left wall");
+        expect(index.count(0, cols - 1, rows - 1, cols - 1) == 0, where + "pellets counted in the right wall");
+
+        for (int q = 0; q < QUERIES; q++) {
+            int row = random.nextInt(rows);
+            int col = random.nextInt(cols);
+            int found = index.nearest(row, col);
+            int best = nearestByScan(map, row, col);
+            if (best < 0) {
+                expect(found < 0, where + "nearest(" + row + "," + col + ") found a cell on an empty map");
+                continue;
+            }
+            expect(found >= 0, where + "nearest(" + row + "," + col + ") found nothing");
+            int r = found / cols;
+            int c = found % cols;
+            expect(!map.isWall(r, c), where + "nearest(" + row + "," + col + ") returned wall (" + r + "," + c + ")");
+            expect(map.hasPellet(r, c), where + "nearest(" + row + "," + col + ") returned eaten cell (" + r + "," + c + ")");
+            expect(Math.abs(r - row) + Math.abs(c - col) == best,
+                   where + "nearest(" + row + "," + col + ") is not the closest pellet");
+        }
+    }
+
+    // Brute-force Manhattan distance to the closest uneaten pellet, or -1
+    private static int nearestByScan(Map map, int row, int col) {
+        int best = -1;
+        for (int r = 0; r < map.getRows(); r++) {
+            for (int c = 0; c < map.getCols(); c++) {
+                if (!map.hasPellet(r, c)) continue;
+                int distance = Math.abs(r - row) + Math.abs(c - col);
+                if (best < 0 || distance < best) best = distance;
+            }
+        }
+        return best;
+    }
+
+    private static void expect(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+}
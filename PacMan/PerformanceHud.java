@@ -0,0 +1,196 @@
+import java.awt.*;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Toggleable overlay showing live frame timing, allocation and GC statistics.
+ * Samples are recorded into fixed-size windows every frame; the heavier work
+ * (percentiles, MXBean queries, text) only happens while the overlay is visible.
+ */
+public class PerformanceHud {
+    private static final int WINDOW = 120;       // Samples kept per timing window
+    private static final int WIDTH = 260;
+    private static final int LINE_HEIGHT = 14;
+    private static final int BAR_WIDTH = 120;
+    private static final Font FONT = new Font("Monospaced", Font.PLAIN, 12);
+    private static final Color BACKGROUND = new Color(0, 0, 0, 170);
+    private static final Color P50_COLOR = new Color(80, 200, 80);
+    private static final Color P95_COLOR = new Color(230, 200, 60);
+    private static final Color P99_COLOR = new Color(230, 70, 70);
+
+    private final long frameBudgetNanos; // Full bar width, normally the game loop delay
+    private final SampleWindow tickTimes = new SampleWindow();
+    private final SampleWindow paintTimes = new SampleWindow();
+    private final long[] frameStamps = new long[WINDOW]; // Ring of recent paint start times
+    private int frameIndex = 0;
+
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final List<GarbageCollectorMXBean> gcBeans = ManagementFactory.getGarbageCollectorMXBeans();
+    private long lastAllocatedBytes = -1;
+    private long bytesPerFrame = -1;
+    private long gcBaseline = 0;
+
+    private boolean visible = false;
+
+    public PerformanceHud(int frameBudgetMillis) {
+        this.frameBudgetNanos = frameBudgetMillis * 1_000_000L;
+    }
+
+    public boolean isVisible() { return visible; }
+
+    public void toggle() {
+        visible = !visible;
+        lastAllocatedBytes = -1; // Don't attribute the hidden period to one frame
+    }
+
+    /**
+     * Resets the GC counter; call whenever a new level or game begins.
+     */
+    public void markLevelStart() {
+        gcBaseline = totalGcCount();
+    }
+
+    public void recordTick(long nanos) {
+        tickTimes.add(nanos);
+    }
+
+    public void recordPaint(long nanos) {
+        paintTimes.add(nanos);
+    }
+
+    /**
+     * Marks the start of a frame. Must be called on the thread that ticks and paints.
+     */
+    public void beginFrame() {
+        frameStamps[frameIndex] = System.nanoTime();
+        frameIndex = (frameIndex + 1) % WINDOW;
+
+        if (!visible) return;
+        long allocated = currentThreadAllocatedBytes();
+        if (allocated >= 0 && lastAllocatedBytes >= 0) {
+            bytesPerFrame = allocated - lastAllocatedBytes;
+        }
+        lastAllocatedBytes = allocated;
+    }
+
+    /**
+     * Draws the overlay in the top-right corner of the panel.
+     */
+    public void draw(Graphics g, GameEngine engine, int panelWidth) {
+        if (!visible) return;
+
+        int x = panelWidth - WIDTH - 6;
+        int y = 50;
+        g.setColor(BACKGROUND);
+        g.fillRect(x, y, WIDTH, LINE_HEIGHT * 9 + 8);
+
+        g.setFont(FONT);
+        g.setColor(Color.WHITE);
+        int line = y + LINE_HEIGHT;
+        g.drawString("FPS:    " + fps(), x + 6, line);
+        line += LINE_HEIGHT;
+        line = drawTiming(g, "Tick", tickTimes, x + 6, line);
+        line = drawTiming(g, "Paint", paintTimes, x + 6, line);
+
+        g.setColor(Color.WHITE);
+        g.drawString("Alloc:  " + (bytesPerFrame >= 0 ? bytes(bytesPerFrame) + "/frame" : "n/a"), x + 6, line);
+        line += LINE_HEIGHT;
+        g.drawString("GCs:    " + (totalGcCount() - gcBaseline) + " this level", x + 6, line);
+        line += LINE_HEIGHT;
+        g.drawString("Ghosts: " + engine.getGhosts().size() + "  Pellets: " + engine.getMap().getPelletsRemaining(),
+                     x + 6, line);
+    }
+
+    // Draws "<label> p50/p99" text followed by stacked p50/p95/p99 bars; returns the next line.
+    private int drawTiming(Graphics g, String label, SampleWindow window, int x, int line) {
+        window.snapshot();
+        long p50 = window.percentile(0.50);
+        long p95 = window.percentile(0.95);
+        long p99 = window.percentile(0.99);
+
+        g.setColor(Color.WHITE);
+        g.drawString(label + ": p50 " + micros(p50) + " p99 " + micros(p99), x, line);
+        line += 4;
+
+        g.setColor(P99_COLOR);
+        g.fillRect(x, line, barLength(p99), 4);
+        g.setColor(P95_COLOR);
+        g.fillRect(x, line, barLength(p95), 4);
+        g.setColor(P50_COLOR);
+        g.fillRect(x, line, barLength(p50), 4);
+        g.setColor(Color.GRAY);
+        g.drawRect(x, line, BAR_WIDTH, 4);
+        return line + LINE_HEIGHT + 4;
+    }
+
+    private int barLength(long nanos) {
+        return (int) Math.min(BAR_WIDTH, nanos * BAR_WIDTH / Math.max(1, frameBudgetNanos));
+    }
+
+    private static String micros(long nanos) {
+        return (nanos / 1000) + "us";
+    }
+
+    // Small allocations stay visible: exact bytes up to 1 KB, tenths of a KB above
+    private static String bytes(long bytes) {
+        if (bytes <= 1024) return bytes + " B";
+        return (bytes / 1024) + "." + (bytes % 1024 * 10 / 1024) + " KB";
+    }
+
+    private int fps() {
+        // frameIndex points at the oldest stamp once the ring has filled up
+        long newest = frameStamps[(frameIndex + WINDOW - 1) % WINDOW];
+        long oldest = frameStamps[frameIndex];
+        if (oldest == 0 || newest <= oldest) return 0;
+        return (int) ((WINDOW - 1) * 1_000_000_000L / (newest - oldest));
+    }
+
+    private long currentThreadAllocatedBytes() {
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadBean;
+            if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+                return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private long totalGcCount() {
+        long count = 0;
+        for (int i = 0; i < gcBeans.size(); i++) {
+            count += Math.max(0, gcBeans.get(i).getCollectionCount());
+        }
+        return count;
+    }
+
+    /**
+     * Fixed-size ring of timing samples with on-demand percentiles.
+     */
+    private static class SampleWindow {
+        private final long[] samples = new long[WINDOW];
+        private final long[] sorted = new long[WINDOW]; // Scratch space for percentile queries
+        private int next = 0;
+        private int count = 0;
+
+        void add(long value) {
+            samples[next] = value;
+            next = (next + 1) % WINDOW;
+            if (count < WINDOW) count++;
+        }
+
+        // Sorts the current samples so percentile() can read them
+        void snapshot() {
+            System.arraycopy(samples, 0, sorted, 0, count);
+            Arrays.sort(sorted, 0, count);
+        }
+
+        long percentile(double p) {
+            if (count == 0) return 0;
+            int index = (int) Math.ceil(p * count) - 1;
+            return sorted[Math.max(0, Math.min(count - 1, index))];
+        }
+    }
+}
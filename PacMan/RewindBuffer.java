@@ -0,0 +1,159 @@
+/**
+ * Keeps the last few seconds of a game in a fixed-size ring so it can be rewound. Each
+ * tick is stored as a StateCodec frame: a keyframe every keyframeInterval ticks and the
+ * recorder's delta in between. Frames live back to back in one preallocated byte array;
+ * when it or the frame table is full the oldest frames are dropped, always up to the
+ * next keyframe so every kept frame can still be rebuilt.
+ *
+ * Rewinding applies the nearest keyframe and at most keyframeInterval - 1 deltas to the
+ * live engine, so it costs microseconds whatever the rewind distance. Ghost randomness
+ * is not rewound: frightened ghosts may take different turns the second time around.
+ */
+public class RewindBuffer implements StateDeltaConsumer {
+    private final GameEngine engine;
+    private final StateDeltaRecorder recorder;
+    private final int keyframeInterval;
+    private final StateWriter keyframeWriter = new StateWriter(256);
+    private final StateReader reader = new StateReader();
+
+    // --- Frame Ring ---
+    private final byte[] data;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final boolean[] keyframes;
+    private int oldest = 0;           // Slot of the oldest kept frame, always a keyframe
+    private int count = 0;
+    private int writePosition = 0;    // Where the next frame's bytes go in data
+    private int framesSinceKeyframe = 0;
+
+    /**
+     * Attaches a rewind buffer to an engine.
+     * @param maxTicks Ticks that can be rewound, as long as their frames fit in maxBytes.
+     * @param keyframeInterval Ticks between stored keyframes; bounds the work per rewind.
+     * @param maxBytes Memory reserved for encoded frames.
+     */
+    public RewindBuffer(GameEngine engine, int maxTicks, int keyframeInterval, int maxBytes) {
+        if (maxTicks <= 0 || keyframeInterval <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("Rewind limits must be positive");
+        }
+        this.engine = engine;
+        this.keyframeInterval = keyframeInterval;
+        this.data = new byte[maxBytes];
+        int slots = maxTicks + keyframeInterval + 1; // Dropping up to a keyframe still leaves maxTicks
+        this.offsets = new int[slots];
+        this.lengths = new int[slots];
+        this.keyframes = new boolean[slots];
+        this.recorder = engine.startStateRecording(0);
+        recorder.addConsumer(this);
+    }
+
+    /**
+     * Number of ticks the game can currently be rewound.
+     */
+    public int getAvailableTicks() {
+        return Math.max(0, count - 1);
+    }
+
+    public int getUsedBytes() {
+        if (count == 0) return 0;
+        int end = offsets[slot(count - 1)] + lengths[slot(count - 1)];
+        int start = offsets[oldest];
+        return end > start ? end - start : data.length - start + end;
+    }
+
+    @Override
+    public void onFrame(byte[] frame, int length, boolean keyframe) {
+        if (!keyframe && (count == 0 || framesSinceKeyframe >= keyframeInterval - 1)) {
+            // Store a keyframe of our own instead of the recorder's delta
+            keyframeWriter.reset();
+            StateCodec.writeKeyframe(engine, recorder.getFrame(), keyframeWriter);
+            frame = keyframeWriter.getData();
+            length = keyframeWriter.getLength();
+            keyframe = true;
+        }
+        store(frame, length, keyframe);
+    }
+
+    private void store(byte[] frame, int length, boolean keyframe) {
+        if (length > data.length) {
+            clear(); // Can't be kept at all; rewinding resumes after the next keyframe
+            return;
+        }
+        if (count == offsets.length) dropOldest();
+        int position;
+        while ((position = freePosition(length)) < 0) {
+            dropOldest();
+        }
+        if (count == 0 && !keyframe) return; // Nothing to rebuild it from
+
+        int slot = slot(count);
+        System.arraycopy(frame, 0, data, position, length);
+        offsets[slot] = position;
+        lengths[slot] = length;
+        keyframes[slot] = keyframe;
+        count++;
+        writePosition = position + length;
+        framesSinceKeyframe = keyframe ? 0 : framesSinceKeyframe + 1;
+    }
+
+    // Returns where a frame of the given length can be written without overwriting kept frames, or -1
+    private int freePosition(int length) {
+        if (count == 0) return 0;
+        int start = offsets[oldest];
+        if (writePosition > start) {
+            if (writePosition + length <= data.length) return writePosition;
+            return length <= start ? 0 : -1; // Wrap to the front of the array
+        }
+        if (writePosition < start) {
+            return writePosition + length <= start ? writePosition : -1;
+        }
+        return -1; // writePosition == start: the ring is full
+    }
+
+    // Drops the oldest frame and any deltas that depended on it
+    private void dropOldest() {
+        do {
+            oldest = slot(1);
+            count--;
+        } while (count > 0 && !keyframes[oldest]);
+        if (count == 0) clear();
+    }
+
+    private void clear() {
+        oldest = 0;
+        count = 0;
+        writePosition = 0;
+        framesSinceKeyframe = 0;
+    }
+
+    private int slot(int index) {
+        return (oldest + index) % offsets.length;
+    }
+
+    /**
+     * Restores the live engine to its state the given number of ticks ago. Newer frames
+     * are discarded, as the game continues from the restored state.
+     * @return The number of ticks actually rewound, limited by getAvailableTicks().
+     */
+    public int rewind(int ticks) {
+        int rewound = Math.min(Math.max(0, ticks), getAvailableTicks());
+        if (rewound == 0) return 0;
+        int target = count - 1 - rewound;
+
+        int keyframe = target;
+        while (!keyframes[slot(keyframe)]) keyframe--;
+        for (int i = keyframe; i <= target; i++) {
+            int slot = slot(i);
+            StateCodec.apply(reader.wrap(data, offsets[slot], lengths[slot]), engine);
+        }
+
+        count = target + 1;
+        writePosition = offsets[slot(target)] + lengths[slot(target)];
+        framesSinceKeyframe = target - keyframe;
+
+        // Other consumers saw the newer ticks; resynchronise them with a full state
+        engine.getMap().clearChanges();
+        recorder.requestKeyframe();
+        return rewound;
+    }
+}
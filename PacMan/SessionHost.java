@@ -0,0 +1,170 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hosts many game sessions and moves idle ones out of the heap. A session without input
+ * for idleMillis is hibernated: its complete state is encoded as a StateCodec keyframe
+ * into a fixed-size slot of a memory-mapped file and its GameEngine is dropped. The next
+ * input (or getEngine()) rebuilds the engine from the slot.
+ *
+ * A hibernated session is paused: it isn't ticked until it wakes up. Only the game state
+ * is kept, so event listeners and recorders are attached again through the onResume
+ * callback, and ghost randomness restarts from the session's seed. The host keeps the
+ * MazeTopology of every map size it hosts, so resuming never rebuilds one even when all
+ * sessions of that size are hibernated.
+ *
+ * Like GameEngine, a host is driven from a single thread.
+ *
+ * Slot layout: frame length (int), seed (long), keyframe bytes...
+ */
+public class SessionHost implements AutoCloseable {
+    private static final int SLOT_HEADER_BYTES = 12;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer slots;
+    private final int slotBytes;
+    private final int[] freeSlots; // Stack of unused slots
+    private int freeCount;
+    private final long idleMillis;
+    private final Consumer<GameEngine> onResume; // May be null
+
+    private final List<HostedSession> sessions = new ArrayList<>();
+    private final List<MazeTopology> topologies = new ArrayList<>(); // Held so the weak topology cache keeps them
+    private final StateWriter writer = new StateWriter(1024);
+    private final StateReader reader = new StateReader();
+    private final byte[] frame;
+    private int hibernatedCount = 0;
+    private int oversizedCount = 0; // Hibernations skipped because the state did not fit a slot
+
+    /**
+     * @param file Backing file for hibernated sessions; created or overwritten.
+     * @param slotCount Maximum number of hibernated sessions.
+     * @param slotBytes Bytes per slot; states that don't fit stay on the heap.
+     * @param idleMillis Time without input after which a session is hibernated.
+     * @param onResume Called with every rebuilt engine, e.g. to attach listeners (may be null).
+     */
+    public SessionHost(Path file, int slotCount, int slotBytes, long idleMillis,
+                       Consumer<GameEngine> onResume) throws IOException {
+        if (slotCount <= 0 || slotBytes <= SLOT_HEADER_BYTES) {
+            throw new IllegalArgumentException("Need at least one slot of more than " + SLOT_HEADER_BYTES + " bytes");
+        }
+        if ((long) slotCount * slotBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Slots exceed the 2 GB that one mapping can hold");
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.slots = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) slotCount * slotBytes);
+        this.slotBytes = slotBytes;
+        this.freeSlots = new int[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            freeSlots[i] = slotCount - 1 - i; // Hand out low slots first
+        }
+        this.freeCount = slotCount;
+        this.idleMillis = idleMillis;
+        this.onResume = onResume;
+        this.frame = new byte[slotBytes - SLOT_HEADER_BYTES];
+    }
+
+    /**
+     * Slot size that fits any state of a map of the given size and ghost count: a
+     * keyframe header plus a few bytes per ghost and per cell.
+     */
+    public static int slotBytesFor(int rows, int cols, int maxGhosts) {
+        return SLOT_HEADER_BYTES + 64 + maxGhosts * 11 + rows * cols * 6;
+    }
+
+    /**
+     * Starts hosting an engine.
+     */
+    public HostedSession addSession(GameEngine engine, long nowMillis) {
+        MazeTopology topology = engine.getMap().getTopology();
+        if (!topologies.contains(topology)) topologies.add(topology);
+        HostedSession session = new HostedSession(this, sessions.size(), engine, nowMillis);
+        sessions.add(session);
+        return session;
+    }
+
+    public HostedSession getSession(int id) { return sessions.get(id); }
+    public int getSessionCount() { return sessions.size(); }
+    public int getHibernatedCount() { return hibernatedCount; }
+    public int getOversizedCount() { return oversizedCount; }
+
+    /**
+     * Advances every awake session by one tick.
+     */
+    public void tickAll() {
+        for (int i = 0; i < sessions.size(); i++) {
+            GameEngine engine = sessions.get(i).peekEngine();
+            if (engine != null) engine.update();
+        }
+    }
+
+    /**
+     * Hibernates every awake session that has been idle for idleMillis.
+     * @return The number of sessions hibernated by this call.
+     */
+    public int hibernateIdle(long nowMillis) {
+        int hibernated = 0;
+        for (int i = 0; i < sessions.size(); i++) {
+            HostedSession session = sessions.get(i);
+            if (!session.isHibernated() && nowMillis - session.getLastInputMillis() >= idleMillis
+                    && hibernate(session)) {
+                hibernated++;
+            }
+        }
+        return hibernated;
+    }
+
+    /**
+     * Writes a session's state to a free slot and drops its engine.
+     * @return False if no slot is free or the state is too large; the session stays awake.
+     */
+    public boolean hibernate(HostedSession session) {
+        GameEngine engine = session.peekEngine();
+        if (engine == null) return true;
+        if (freeCount == 0) return false;
+
+        writer.reset();
+        StateCodec.writeKeyframe(engine, 0, writer);
+        if (writer.getLength() > frame.length) {
+            oversizedCount++;
+            return false;
+        }
+
+        int slot = freeSlots[--freeCount];
+        int base = slot * slotBytes;
+        slots.putLong(base + 4, engine.getSeed());
+        slots.put(base + SLOT_HEADER_BYTES, writer.getData(), 0, writer.getLength());
+        slots.putInt(base, writer.getLength());
+        session.hibernated(slot);
+        hibernatedCount++;
+        return true;
+    }
+
+    // Rebuilds a hibernated session's engine from its slot and frees the slot
+    void resume(HostedSession session) {
+        int slot = session.getSlot();
+        int base = slot * slotBytes;
+        int length = slots.getInt(base);
+        long seed = slots.getLong(base + 4);
+        slots.get(base + SLOT_HEADER_BYTES, frame, 0, length);
+
+        GameEngine engine = StateCodec.newReplica(reader.wrap(frame, 0, length));
+        engine.restoreSeed(seed);
+        freeSlots[freeCount++] = slot;
+        hibernatedCount--;
+        session.resumed(engine);
+        if (onResume != null) onResume.accept(engine);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
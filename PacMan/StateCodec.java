@@ -0,0 +1,220 @@
+import java.util.List;
+
+/**
+ * Binary format of recorded game state. A keyframe holds the complete state of an engine;
+ * a delta holds only what changed during one tick. Applying a keyframe and the deltas that
+ * follow it to a replica engine reproduces the recorded state exactly.
+ *
+ * Keyframe: KEYFRAME, frame, rows, cols, baseGhosts, level, status, ticks, gameTicks,
+ *           score, powerUpTicks, pacRow, pacCol, pellets, ghostCount, ghosts..., changed cells...
+ * Keyframe cells are stored as differences from the shared start-of-level layout, so
+ * their size depends on how far the level has progressed, not on the map size.
+ * Delta:    DELTA, frame, ticks, flags, [flagged fields...], changed ghosts..., changed cells...
+ * A delta carries gameTicks as its offset from ticks, which only changes when a level
+ * starts, so it is flagged on the rare ticks where it does.
+ */
+public final class StateCodec {
+    public static final int KEYFRAME = 0;
+    public static final int DELTA = 1;
+
+    // --- Delta Flags (which optional fields follow) ---
+    static final int FLAG_SCORE = 1;
+    static final int FLAG_LEVEL = 2;
+    static final int FLAG_STATUS = 4;
+    static final int FLAG_POWER_UP = 8;
+    static final int FLAG_PACMAN = 16;
+    static final int FLAG_PELLETS = 32;
+    static final int FLAG_GHOST_COUNT = 64;
+    static final int FLAG_GAME_TICKS = 128;
+
+    // --- Status Bits ---
+    private static final int STATUS_RUNNING = 1;
+    private static final int STATUS_GAME_OVER = 2;
+    private static final int STATUS_VICTORY = 4;
+
+    // Cell symbols in the order of their one-byte codes
+    private static final char[] CONTENT_CODES = {Map.EMPTY, Map.PELLET, Map.POWER_UP, Map.WALL};
+
+    private StateCodec() {
+    }
+
+    static int status(GameEngine engine) {
+        return (engine.isRunning() ? STATUS_RUNNING : 0)
+             | (engine.isGameOver() ? STATUS_GAME_OVER : 0)
+             | (engine.isVictory() ? STATUS_VICTORY : 0);
+    }
+
+    static int contentCode(char content) {
+        for (int i = 0; i < CONTENT_CODES.length; i++) {
+            if (CONTENT_CODES[i] == content) return i;
+        }
+        return 0;
+    }
+
+    /**
+     * Writes the complete state of an engine.
+     */
+    public static void writeKeyframe(GameEngine engine, int frame, StateWriter out) {
+        Map map = engine.getMap();
+        PacManCharacter pacMan = engine.getPacMan();
+        List<Ghost> ghosts = engine.getGhosts();
+
+        out.writeByte(KEYFRAME);
+        out.writeVarint(frame);
+        out.writeVarint(map.getRows());
+        out.writeVarint(map.getCols());
+        out.writeVarint(engine.getBaseGhosts());
+        out.writeVarint(engine.getLevel());
+        out.writeByte(status(engine));
+        out.writeVarint(engine.getTicks());
+        out.writeVarint(engine.getGameTicks());
+        out.writeVarint(pacMan.getScore());
+        out.writeVarint(pacMan.getPowerUpTicksLeft());
+        out.writeSignedVarint(pacMan.getRow());
+        out.writeSignedVarint(pacMan.getCol());
+        out.writeVarint(map.getPelletsRemaining());
+
+        out.writeVarint(ghosts.size());
+        for (int i = 0; i < ghosts.size(); i++) {
+            Ghost ghost = ghosts.get(i);
+            out.writeSignedVarint(ghost.getRow());
+            out.writeSignedVarint(ghost.getCol());
+            out.writeByte(contentCode(ghost.getContentUnderGhost()));
+        }
+
+        int changed = 0;
+        for (int cell = map.nextChangedFromInitial(0); cell >= 0; cell = map.nextChangedFromInitial(cell + 1)) {
+            changed++;
+        }
+        out.writeVarint(changed);
+        int previous = 0;
+        for (int cell = map.nextChangedFromInitial(0); cell >= 0; cell = map.nextChangedFromInitial(cell + 1)) {
+            out.writeVarint(cell - previous); // Gaps between ascending cells stay small
+            out.writeByte(map.getCellState(cell));
+            previous = cell;
+        }
+    }
+
+    /**
+     * Reads the header of a keyframe and creates an engine of the recorded size and
+     * ghost count, with the keyframe's state applied.
+     */
+    public static GameEngine newReplica(StateReader in) {
+        int start = in.getPosition();
+        if (in.readByte() != KEYFRAME) {
+            throw new IllegalArgumentException("A replica can only be created from a keyframe");
+        }
+        in.readVarint(); // frame
+        int rows = in.readVarint();
+        int cols = in.readVarint();
+        int baseGhosts = in.readVarint();
+        GameEngine engine = new GameEngine(rows, cols, baseGhosts);
+
+        // Go back to the start of the frame and apply all of it
+        in.seek(start);
+        apply(in, engine);
+        return engine;
+    }
+
+    /**
+     * Applies one keyframe or delta to an engine.
+     * @return The frame number stored in the frame.
+     */
+    public static int apply(StateReader in, GameEngine engine) {
+        int kind = in.readByte();
+        int frame = in.readVarint();
+        if (kind == KEYFRAME) {
+            applyKeyframe(in, engine);
+        } else if (kind == DELTA) {
+            applyDelta(in, engine);
+        } else {
+            throw new IllegalArgumentException("Unknown state frame kind " + kind);
+        }
+        return frame;
+    }
+
+    private static void applyKeyframe(StateReader in, GameEngine engine) {
+        Map map = engine.getMap();
+        int rows = in.readVarint();
+        int cols = in.readVarint();
+        int baseGhosts = in.readVarint();
+        if (rows != map.getRows() || cols != map.getCols() || baseGhosts != engine.getBaseGhosts()) {
+            throw new IllegalArgumentException("Keyframe is for a " + rows + "x" + cols + " map with "
+                + baseGhosts + " base ghosts");
+        }
+        int level = in.readVarint();
+        int status = in.readByte();
+        int ticks = in.readVarint();
+        restoreProgress(engine, level, status, ticks, in.readVarint());
+
+        PacManCharacter pacMan = engine.getPacMan();
+        pacMan.setScore(in.readVarint());
+        pacMan.setPowerUpTicksLeft(in.readVarint());
+        int pacRow = in.readSignedVarint();
+        pacMan.setPosition(pacRow, in.readSignedVarint());
+        int pellets = in.readVarint();
+
+        int ghostCount = in.readVarint();
+        resizeGhosts(engine.getGhosts(), ghostCount);
+        for (int i = 0; i < ghostCount; i++) {
+            readGhost(in, engine.getGhosts().get(i));
+        }
+
+        map.restoreInitialLayout();
+        map.setPelletsRemaining(pellets);
+        int changed = in.readVarint();
+        int cell = 0;
+        for (int i = 0; i < changed; i++) {
+            cell += in.readVarint();
+            map.setCellState(cell, in.readByte());
+        }
+    }
+
+    private static void applyDelta(StateReader in, GameEngine engine) {
+        Map map = engine.getMap();
+        PacManCharacter pacMan = engine.getPacMan();
+        int ticks = in.readVarint();
+        int flags = in.readVarint();
+
+        if ((flags & FLAG_SCORE) != 0) pacMan.setScore(in.readVarint());
+        int level = (flags & FLAG_LEVEL) != 0 ? in.readVarint() : engine.getLevel();
+        int status = (flags & FLAG_STATUS) != 0 ? in.readByte() : status(engine);
+        int gameTickOffset = (flags & FLAG_GAME_TICKS) != 0
+            ? in.readSignedVarint() : engine.getGameTicks() - engine.getTicks();
+        restoreProgress(engine, level, status, ticks, ticks + gameTickOffset);
+        if ((flags & FLAG_POWER_UP) != 0) pacMan.setPowerUpTicksLeft(in.readVarint());
+        if ((flags & FLAG_PACMAN) != 0) {
+            int pacRow = in.readSignedVarint();
+            pacMan.setPosition(pacRow, in.readSignedVarint());
+        }
+        if ((flags & FLAG_PELLETS) != 0) map.setPelletsRemaining(in.readVarint());
+        if ((flags & FLAG_GHOST_COUNT) != 0) resizeGhosts(engine.getGhosts(), in.readVarint());
+
+        int changedGhosts = in.readVarint();
+        for (int i = 0; i < changedGhosts; i++) {
+            readGhost(in, engine.getGhosts().get(in.readVarint()));
+        }
+
+        int changedCells = in.readVarint();
+        for (int i = 0; i < changedCells; i++) {
+            int cell = in.readVarint();
+            map.setCellState(cell, in.readByte());
+        }
+    }
+
+    private static void restoreProgress(GameEngine engine, int level, int status, int ticks, int gameTicks) {
+        engine.restoreProgress(level, ticks, gameTicks, (status & STATUS_RUNNING) != 0,
+                               (status & STATUS_GAME_OVER) != 0, (status & STATUS_VICTORY) != 0);
+    }
+
+    private static void readGhost(StateReader in, Ghost ghost) {
+        int row = in.readSignedVarint();
+        ghost.setPosition(row, in.readSignedVarint());
+        ghost.setContentUnderGhost(CONTENT_CODES[in.readByte()]);
+    }
+
+    private static void resizeGhosts(List<Ghost> ghosts, int count) {
+        while (ghosts.size() > count) ghosts.remove(ghosts.size() - 1);
+        while (ghosts.size() < count) ghosts.add(new Ghost(0, 0));
+    }
+}
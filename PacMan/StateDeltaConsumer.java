@@ -0,0 +1,14 @@
+/**
+ * Receives the per-tick state frames produced by a StateDeltaRecorder.
+ */
+public interface StateDeltaConsumer {
+
+    /**
+     * Called once per recorded tick. The buffer is reused for the next frame, so
+     * consumers must copy or decode the bytes before returning.
+     * @param data     Encoded frame, starting at index 0.
+     * @param length   Number of valid bytes in data.
+     * @param keyframe True if the frame holds the full state rather than a delta.
+     */
+    void onFrame(byte[] data, int length, boolean keyframe);
+}
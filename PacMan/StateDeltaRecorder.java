@@ -0,0 +1,190 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Encodes the state change of every engine tick into a compact frame (see StateCodec)
+ * and hands it to any number of consumers. Map cells are taken from the Map's change
+ * list, so the work per tick scales with what changed rather than with the map size.
+ * A full keyframe is written at the start, after every map reset and every
+ * keyframeInterval frames so late joiners and seeking readers can resynchronise.
+ */
+public class StateDeltaRecorder {
+    private final GameEngine engine;
+    private int keyframeInterval; // 0 = only when required
+    private final StateWriter out = new StateWriter(256);
+    private final List<StateDeltaConsumer> consumers = new ArrayList<>();
+
+    private int frame = 0;
+    private int framesSinceKeyframe = 0;
+    private boolean keyframeRequested = true;
+
+    // --- Last Emitted State (what the consumers currently know) ---
+    private int lastScore;
+    private int lastLevel;
+    private int lastStatus;
+    private int lastGameTickOffset;
+    private int lastPowerUpTicks;
+    private int lastPacRow;
+    private int lastPacCol;
+    private int lastPellets;
+    private int lastGhostCount;
+    private int[] lastGhostRows = new int[8];
+    private int[] lastGhostCols = new int[8];
+    private int[] lastGhostContent = new int[8];
+
+    public StateDeltaRecorder(GameEngine engine, int keyframeInterval) {
+        this.engine = engine;
+        this.keyframeInterval = keyframeInterval;
+        engine.getMap().enableChangeTracking();
+    }
+
+    public void addConsumer(StateDeltaConsumer consumer) {
+        consumers.add(consumer);
+        keyframeRequested = true; // New consumers need a full state to start from
+    }
+
+    public void removeConsumer(StateDeltaConsumer consumer) {
+        consumers.remove(consumer);
+    }
+
+    /**
+     * Forces the next recorded frame to be a keyframe.
+     */
+    public void requestKeyframe() {
+        keyframeRequested = true;
+    }
+
+    /**
+     * Shortens the keyframe interval for another user of this recorder; a longer interval,
+     * or 0, leaves it as it is.
+     */
+    void requestKeyframeInterval(int interval) {
+        if (interval > 0 && (keyframeInterval == 0 || interval < keyframeInterval)) {
+            keyframeInterval = interval;
+        }
+    }
+
+    public int getFrame() { return frame; }
+
+    /**
+     * Encodes the current tick and delivers it to every consumer. Called by the engine
+     * at the end of update().
+     */
+    public void recordTick() {
+        Map map = engine.getMap();
+        if (consumers.isEmpty()) {
+            map.clearChanges();
+            keyframeRequested = true;
+            frame++;
+            return;
+        }
+
+        boolean keyframe = keyframeRequested || map.wasResetSinceClear()
+            || (keyframeInterval > 0 && framesSinceKeyframe >= keyframeInterval);
+        out.reset();
+        if (keyframe) {
+            StateCodec.writeKeyframe(engine, frame, out);
+            framesSinceKeyframe = 0;
+            keyframeRequested = false;
+        } else {
+            writeDelta(map);
+            framesSinceKeyframe++;
+        }
+        remember();
+        map.clearChanges();
+
+        for (int i = 0; i < consumers.size(); i++) {
+            consumers.get(i).onFrame(out.getData(), out.getLength(), keyframe);
+        }
+        frame++;
+    }
+
+    private void writeDelta(Map map) {
+        PacManCharacter pacMan = engine.getPacMan();
+        List<Ghost> ghosts = engine.getGhosts();
+
+        int flags = 0;
+        if (pacMan.getScore() != lastScore) flags |= StateCodec.FLAG_SCORE;
+        if (engine.getLevel() != lastLevel) flags |= StateCodec.FLAG_LEVEL;
+        if (StateCodec.status(engine) != lastStatus) flags |= StateCodec.FLAG_STATUS;
+        if (engine.getGameTicks() - engine.getTicks() != lastGameTickOffset) flags |= StateCodec.FLAG_GAME_TICKS;
+        if (pacMan.getPowerUpTicksLeft() != lastPowerUpTicks) flags |= StateCodec.FLAG_POWER_UP;
+        if (pacMan.getRow() != lastPacRow || pacMan.getCol() != lastPacCol) flags |= StateCodec.FLAG_PACMAN;
+        if (map.getPelletsRemaining() != lastPellets) flags |= StateCodec.FLAG_PELLETS;
+        if (ghosts.size() != lastGhostCount) flags |= StateCodec.FLAG_GHOST_COUNT;
+
+        out.writeByte(StateCodec.DELTA);
+        out.writeVarint(frame);
+        out.writeVarint(engine.getTicks());
+        out.writeVarint(flags);
+        if ((flags & StateCodec.FLAG_SCORE) != 0) out.writeVarint(pacMan.getScore());
+        if ((flags & StateCodec.FLAG_LEVEL) != 0) out.writeVarint(engine.getLevel());
+        if ((flags & StateCodec.FLAG_STATUS) != 0) out.writeByte(StateCodec.status(engine));
+        if ((flags & StateCodec.FLAG_GAME_TICKS) != 0) out.writeSignedVarint(engine.getGameTicks() - engine.getTicks());
+        if ((flags & StateCodec.FLAG_POWER_UP) != 0) out.writeVarint(pacMan.getPowerUpTicksLeft());
+        if ((flags & StateCodec.FLAG_PACMAN) != 0) {
+            out.writeSignedVarint(pacMan.getRow());
+            out.writeSignedVarint(pacMan.getCol());
+        }
+        if ((flags & StateCodec.FLAG_PELLETS) != 0) out.writeVarint(map.getPelletsRemaining());
+        if ((flags & StateCodec.FLAG_GHOST_COUNT) != 0) out.writeVarint(ghosts.size());
+
+        // Ghosts that moved or now cover something else
+        int changed = 0;
+        for (int i = 0; i < ghosts.size(); i++) {
+            if (ghostChanged(i, ghosts.get(i))) changed++;
+        }
+        out.writeVarint(changed);
+        for (int i = 0; i < ghosts.size(); i++) {
+            Ghost ghost = ghosts.get(i);
+            if (!ghostChanged(i, ghost)) continue;
+            out.writeVarint(i);
+            out.writeSignedVarint(ghost.getRow());
+            out.writeSignedVarint(ghost.getCol());
+            out.writeByte(StateCodec.contentCode(ghost.getContentUnderGhost()));
+        }
+
+        out.writeVarint(map.getChangedCount());
+        for (int i = 0; i < map.getChangedCount(); i++) {
+            int cell = map.getChangedCell(i);
+            out.writeVarint(cell);
+            out.writeByte(map.getCellState(cell));
+        }
+    }
+
+    private boolean ghostChanged(int index, Ghost ghost) {
+        return index >= lastGhostCount
+            || ghost.getRow() != lastGhostRows[index]
+            || ghost.getCol() != lastGhostCols[index]
+            || StateCodec.contentCode(ghost.getContentUnderGhost()) != lastGhostContent[index];
+    }
+
+    private void remember() {
+        PacManCharacter pacMan = engine.getPacMan();
+        List<Ghost> ghosts = engine.getGhosts();
+        lastScore = pacMan.getScore();
+        lastLevel = engine.getLevel();
+        lastStatus = StateCodec.status(engine);
+        lastGameTickOffset = engine.getGameTicks() - engine.getTicks();
+        lastPowerUpTicks = pacMan.getPowerUpTicksLeft();
+        lastPacRow = pacMan.getRow();
+        lastPacCol = pacMan.getCol();
+        lastPellets = engine.getMap().getPelletsRemaining();
+
+        if (ghosts.size() > lastGhostRows.length) {
+            // Grows rarely: only when a level brings more ghosts than ever seen before
+            int capacity = Math.max(ghosts.size(), lastGhostRows.length * 2);
+            lastGhostRows = Arrays.copyOf(lastGhostRows, capacity);
+            lastGhostCols = Arrays.copyOf(lastGhostCols, capacity);
+            lastGhostContent = Arrays.copyOf(lastGhostContent, capacity);
+        }
+        lastGhostCount = ghosts.size();
+        for (int i = 0; i < ghosts.size(); i++) {
+            Ghost ghost = ghosts.get(i);
+            lastGhostRows[i] = ghost.getRow();
+            lastGhostCols[i] = ghost.getCol();
+            lastGhostContent[i] = StateCodec.contentCode(ghost.getContentUnderGhost());
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * Reads the varint encoded data produced by StateWriter. A reader can be re-pointed at
+ * new data with wrap(), so one instance serves any number of frames.
+ */
+public class StateReader {
+    private byte[] data;
+    private int position;
+    private int limit;
+
+    public StateReader wrap(byte[] data, int offset, int length) {
+        this.data = data;
+        this.position = offset;
+        this.limit = offset + length;
+        return this;
+    }
+
+    public boolean hasRemaining() { return position < limit; }
+    public int getPosition() { return position; }
+
+    public void seek(int position) {
+        this.position = position;
+    }
+
+    public int readByte() {
+        if (position >= limit) throw new IllegalStateException("Read past end of state frame");
+        return data[position++] & 0xFF;
+    }
+
+    public int readVarint() {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IllegalStateException("Malformed varint in state frame");
+    }
+
+    public int readSignedVarint() {
+        int raw = readVarint();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+}
@@ -0,0 +1,56 @@
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer with varint encoding, reused frame after frame by state recorders.
+ */
+public class StateWriter {
+    private byte[] data;
+    private int length = 0;
+
+    public StateWriter(int initialCapacity) {
+        this.data = new byte[Math.max(16, initialCapacity)];
+    }
+
+    public byte[] getData() { return data; }
+    public int getLength() { return length; }
+
+    public void reset() {
+        length = 0;
+    }
+
+    public void writeByte(int value) {
+        ensureCapacity(1);
+        data[length++] = (byte) value;
+    }
+
+    /**
+     * Writes a non-negative int in 1 to 5 bytes, 7 bits per byte.
+     */
+    public void writeVarint(int value) {
+        ensureCapacity(5);
+        while ((value & ~0x7F) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+
+    /**
+     * Writes a possibly negative int using zig-zag encoding, so small negatives stay short.
+     */
+    public void writeSignedVarint(int value) {
+        writeVarint((value << 1) ^ (value >> 31));
+    }
+
+    public void writeBytes(byte[] source, int offset, int count) {
+        ensureCapacity(count);
+        System.arraycopy(source, offset, data, length, count);
+        length += count;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + extra));
+        }
+    }
+}